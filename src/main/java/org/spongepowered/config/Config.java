@@ -321,6 +321,54 @@ public interface Config extends ConfigMergeable {
      */
     Config resolveWith(Config source, ConfigResolveOptions options);
 
+    /**
+     * Indexes this configuration so it can be used efficiently as the source
+     * for many calls to {@link Config#resolveWith(ConfigResolveSource)}. The
+     * index is built once, maps every path in this configuration to its value,
+     * and is immutable, so the returned source can be shared between threads.
+     * Lookups in an indexed source don't have to walk the tree from the root.
+     * <p>
+     * Only a resolved configuration can be indexed; call {@link #resolve()}
+     * first if necessary.
+     *
+     * @return a reusable source of substitution values
+     * @throws ConfigException.NotResolved
+     *             if this configuration is not resolved
+     * @since 1.3.0
+     */
+    ConfigResolveSource asResolveSource();
+
+    /**
+     * Like {@link Config#resolveWith(Config)} but with a source created by
+     * {@link Config#asResolveSource()}, which is faster when the same source is
+     * used over and over.
+     *
+     * @param source
+     *            indexed source to pull values from
+     * @return an immutable object with substitutions resolved
+     * @throws ConfigException.UnresolvedSubstitution
+     *             if any substitutions refer to paths which are not in the
+     *             source
+     * @throws ConfigException
+     *             some other config exception if there are other problems
+     * @since 1.3.0
+     */
+    Config resolveWith(ConfigResolveSource source);
+
+    /**
+     * Like {@link Config#resolveWith(ConfigResolveSource)} but allows you to
+     * specify non-default options.
+     *
+     * @param source
+     *            indexed source to pull values from
+     * @param options
+     *            resolve options
+     * @return the resolved <code>Config</code> (may be only partially resolved
+     *         if options are set to allow unresolved)
+     * @since 1.3.0
+     */
+    Config resolveWith(ConfigResolveSource source, ConfigResolveOptions options);
+
     /**
      * Validates this config against a reference config, throwing an exception
      * if it is invalid. The purpose of this method is to "fail early" with a
@@ -691,6 +739,52 @@ public interface Config extends ConfigMergeable {
 
     List<Double> getDoubleList(String path);
 
+    /**
+     * Gets a list of numbers as an array of ints, without boxing each
+     * element. The array is a copy and may be modified.
+     *
+     * @param path
+     *            the path to the list value
+     * @return the numbers in the list
+     * @throws ConfigException.Missing
+     *             if value is absent or null
+     * @throws ConfigException.WrongType
+     *             if value is not a list of numbers, or a number does not fit
+     *             in an int
+     * @since 1.3.0
+     */
+    int[] getIntArray(String path);
+
+    /**
+     * Gets a list of numbers as an array of longs, without boxing each
+     * element. The array is a copy and may be modified.
+     *
+     * @param path
+     *            the path to the list value
+     * @return the numbers in the list
+     * @throws ConfigException.Missing
+     *             if value is absent or null
+     * @throws ConfigException.WrongType
+     *             if value is not a list of numbers
+     * @since 1.3.0
+     */
+    long[] getLongArray(String path);
+
+    /**
+     * Gets a list of numbers as an array of doubles, without boxing each
+     * element. The array is a copy and may be modified.
+     *
+     * @param path
+     *            the path to the list value
+     * @return the numbers in the list
+     * @throws ConfigException.Missing
+     *             if value is absent or null
+     * @throws ConfigException.WrongType
+     *             if value is not a list of numbers
+     * @since 1.3.0
+     */
+    double[] getDoubleArray(String path);
+
     List<String> getStringList(String path);
 
     List<? extends ConfigObject> getObjectList(String path);
@@ -0,0 +1,207 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.spongepowered.config.impl.ConfigImpl;
+
+/**
+ * Static methods for encoding a resolved {@link Config} as bytes and
+ * decoding it again, for passing configs between processes through files,
+ * pipes or shared memory. The format is the compact one also used by Java
+ * serialization of a config, but these methods work on {@link ByteBuffer}s
+ * (heap or direct) and channels and never go through an
+ * <code>ObjectOutputStream</code>.
+ *
+ * <p>
+ * Encoding keeps origins by default, so error messages from the decoded
+ * config still point at the original files; leave them out to get a smaller
+ * encoding in which every value has the origin of the root object.
+ *
+ * @since 1.3.0
+ */
+public final class ConfigCodec {
+    private ConfigCodec() {
+    }
+
+    /**
+     * Encodes a config at the buffer's position, advancing it past the
+     * encoding. The encoding is the same whatever the buffer's
+     * {@link java.nio.ByteOrder byte order}.
+     *
+     * @param config
+     *            a resolved config
+     * @param buffer
+     *            where to write it
+     * @throws java.nio.BufferOverflowException
+     *             if the buffer is too small; what was written is then
+     *             incomplete and the position is unspecified
+     * @throws ConfigException.NotResolved
+     *             if the config is not resolved
+     */
+    public static void encode(Config config, ByteBuffer buffer) {
+        ConfigImpl.encode(config, buffer, true /* includeOrigins */);
+    }
+
+    /**
+     * Like {@link #encode(Config, ByteBuffer)} but optionally leaving out
+     * origins.
+     *
+     * @param config
+     *            a resolved config
+     * @param buffer
+     *            where to write it
+     * @param includeOrigins
+     *            false to only keep the root origin
+     * @throws java.nio.BufferOverflowException
+     *             if the buffer is too small
+     * @throws ConfigException.NotResolved
+     *             if the config is not resolved
+     */
+    public static void encode(Config config, ByteBuffer buffer, boolean includeOrigins) {
+        ConfigImpl.encode(config, buffer, includeOrigins);
+    }
+
+    /**
+     * Encodes a config into a new heap buffer, ready to be read.
+     *
+     * @param config
+     *            a resolved config
+     * @return a buffer holding the encoding between its position and limit
+     * @throws ConfigException.NotResolved
+     *             if the config is not resolved
+     */
+    public static ByteBuffer encode(Config config) {
+        return ConfigImpl.encode(config, true /* includeOrigins */);
+    }
+
+    /**
+     * Writes a config to a channel, streaming it in chunks rather than
+     * building the whole encoding in memory. The channel is not closed, and
+     * the chunks mark where the config ends, so several configs can be
+     * written to the same channel and read back one by one with
+     * {@link #decode(ReadableByteChannel)}. This is not the same encoding as
+     * {@link #encode(Config, ByteBuffer)}.
+     *
+     * @param config
+     *            a resolved config
+     * @param channel
+     *            where to write it
+     * @param includeOrigins
+     *            false to only keep the root origin
+     * @throws ConfigException.IO
+     *             if writing to the channel fails
+     * @throws ConfigException.NotResolved
+     *             if the config is not resolved
+     */
+    public static void encode(Config config, WritableByteChannel channel, boolean includeOrigins) {
+        ConfigImpl.encode(config, channel, includeOrigins);
+    }
+
+    /**
+     * Like {@link #encode(Config, WritableByteChannel, boolean)}, keeping
+     * origins.
+     *
+     * @param config
+     *            a resolved config
+     * @param channel
+     *            where to write it
+     * @throws ConfigException.IO
+     *             if writing to the channel fails
+     * @throws ConfigException.NotResolved
+     *             if the config is not resolved
+     */
+    public static void encode(Config config, WritableByteChannel channel) {
+        ConfigImpl.encode(config, channel, true /* includeOrigins */);
+    }
+
+    /**
+     * Decodes a config written by {@link #encode(Config, ByteBuffer)},
+     * starting at the buffer's position and advancing it past the encoding.
+     * The buffer's byte order doesn't matter.
+     *
+     * @param buffer
+     *            the encoded config
+     * @return the decoded config, which is resolved
+     * @throws ConfigException.IO
+     *             if the buffer does not hold a valid encoding
+     */
+    public static Config decode(ByteBuffer buffer) {
+        return ConfigImpl.decode(buffer);
+    }
+
+    /**
+     * Reads one config written by
+     * {@link #encode(Config, WritableByteChannel, boolean)}, consuming exactly
+     * its bytes from the channel.
+     *
+     * @param channel
+     *            the channel to read from
+     * @return the decoded config, which is resolved
+     * @throws ConfigException.IO
+     *             if reading fails or the channel does not hold a valid
+     *             encoding
+     */
+    public static Config decode(ReadableByteChannel channel) {
+        return ConfigImpl.decode(channel);
+    }
+
+    /**
+     * Encodes the changes that turn one version of a config into another,
+     * so that a process holding the old version can be sent only what
+     * changed. Values are compared with {@link ConfigValue#equals}; changed
+     * values are encoded with their origins, while unchanged ones keep the
+     * origins they have in the config the delta is applied to.
+     *
+     * @param oldVersion
+     *            the resolved config the receiver already has
+     * @param newVersion
+     *            the resolved config it should end up with
+     * @return a heap buffer holding the delta between its position and limit
+     * @throws ConfigException.NotResolved
+     *             if either config is not resolved
+     */
+    public static ByteBuffer encodeDelta(Config oldVersion, Config newVersion) {
+        return ConfigImpl.encodeDelta(oldVersion, newVersion);
+    }
+
+    /**
+     * Applies a delta from {@link #encodeDelta(Config, Config)}, starting at
+     * the buffer's position and advancing it past the delta.
+     *
+     * @param base
+     *            a config equal to the old version the delta was made from
+     * @param delta
+     *            the encoded delta
+     * @return a config equal to the new version; base itself if nothing
+     *         changed
+     * @throws ConfigException.Generic
+     *             if base is not equal to the old version
+     * @throws ConfigException.IO
+     *             if the buffer does not hold a valid delta
+     * @throws ConfigException.NotResolved
+     *             if base is not resolved
+     */
+    public static Config applyDelta(Config base, ByteBuffer delta) {
+        return ConfigImpl.applyDelta(base, delta);
+    }
+}
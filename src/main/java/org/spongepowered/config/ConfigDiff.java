@@ -0,0 +1,187 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The paths that differ between two configs, for example an old and a new
+ * version of a config that was reloaded. Create one with
+ * {@link #between(Config, Config)}.
+ *
+ * <p>
+ * Both trees are walked together and a child object is only descended into
+ * when it differs. The work is only proportional to the size of the
+ * difference when the configs share their unchanged subtrees as instances,
+ * as configs from {@link ConfigFactory#intern} or
+ * {@link Config#withValue} do: a shared subtree costs nothing. An unchanged
+ * subtree that is merely equal, as in a config parsed again on reload, has
+ * to be compared in full (equal hashes don't prove equality), so diffing
+ * two separately parsed configs costs about as much as comparing them with
+ * {@link ConfigValue#equals}, still far less than parsing one.
+ *
+ * <p>
+ * Paths are path expressions as used with {@link Config#getValue}. A key
+ * that holds an object on both sides is reported by the paths that differ
+ * inside it; a value that was added or removed as a whole (including an
+ * object) is reported at its own path, without flattening it. As with
+ * {@link ConfigValue#equals}, origins are not compared.
+ *
+ * <p>
+ * This object is immutable.
+ *
+ * @since 1.3.0
+ */
+public final class ConfigDiff {
+
+    /**
+     * A value that is present in both configs but differs.
+     *
+     * @since 1.3.0
+     */
+    public static final class Change {
+        private final ConfigValue oldValue;
+        private final ConfigValue newValue;
+
+        private Change(ConfigValue oldValue, ConfigValue newValue) {
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        /**
+         * @return the value in the first config
+         */
+        public ConfigValue oldValue() {
+            return oldValue;
+        }
+
+        /**
+         * @return the value in the second config
+         */
+        public ConfigValue newValue() {
+            return newValue;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Change && oldValue.equals(((Change) other).oldValue)
+                    && newValue.equals(((Change) other).newValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return 41 * (41 + oldValue.hashCode()) + newValue.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "Change(" + oldValue + " -> " + newValue + ")";
+        }
+    }
+
+    private final SortedMap<String, ConfigValue> added = new TreeMap<String, ConfigValue>();
+    private final SortedMap<String, ConfigValue> removed = new TreeMap<String, ConfigValue>();
+    private final SortedMap<String, Change> changed = new TreeMap<String, Change>();
+
+    private ConfigDiff() {
+    }
+
+    /**
+     * Finds what differs between two configs.
+     *
+     * @param oldVersion
+     *            the config to compare from
+     * @param newVersion
+     *            the config to compare to
+     * @return the differences, empty if the configs are equal
+     */
+    public static ConfigDiff between(Config oldVersion, Config newVersion) {
+        ConfigDiff diff = new ConfigDiff();
+        diff.walk(new ArrayList<String>(), oldVersion.root(), newVersion.root());
+        return diff;
+    }
+
+    private void walk(List<String> path, ConfigObject oldObject, ConfigObject newObject) {
+        if (oldObject == newObject)
+            return;
+        for (String key : oldObject.keySet()) {
+            ConfigValue oldValue = oldObject.get(key);
+            ConfigValue newValue = newObject.get(key);
+            if (oldValue == newValue)
+                continue;
+            path.add(key);
+            if (newValue == null) {
+                removed.put(ConfigUtil.joinPath(path), oldValue);
+            } else if (!oldValue.equals(newValue)) {
+                // equals() is cheap here, objects compare cached hashes first
+                if (oldValue instanceof ConfigObject && newValue instanceof ConfigObject)
+                    walk(path, (ConfigObject) oldValue, (ConfigObject) newValue);
+                else
+                    changed.put(ConfigUtil.joinPath(path), new Change(oldValue, newValue));
+            }
+            path.remove(path.size() - 1);
+        }
+        for (String key : newObject.keySet()) {
+            if (!oldObject.containsKey(key)) {
+                path.add(key);
+                added.put(ConfigUtil.joinPath(path), newObject.get(key));
+                path.remove(path.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * @return true if the two configs are equal
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * @return values only in the second config, by path, in path order
+     */
+    public Map<String, ConfigValue> added() {
+        return Collections.unmodifiableMap(added);
+    }
+
+    /**
+     * @return values only in the first config, by path, in path order
+     */
+    public Map<String, ConfigValue> removed() {
+        return Collections.unmodifiableMap(removed);
+    }
+
+    /**
+     * @return values in both configs that differ, by path, in path order
+     */
+    public Map<String, Change> changed() {
+        return Collections.unmodifiableMap(changed);
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigDiff(added=" + added.keySet() + ", removed=" + removed.keySet()
+                + ", changed=" + changed.keySet() + ")";
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Maps environment variable names to the paths they can satisfy when a
+ * substitution falls back to the environment. Without a mapping, an environment
+ * variable can only satisfy a substitution which is exactly its name, such as
+ * <code>${HOME}</code>; with a mapping it can also satisfy the path returned by
+ * {@link #pathExpression}.
+ * <p>
+ * A mapping is applied once to every environment variable name and the result
+ * is kept in an index, so it should be a pure function of its argument. Only
+ * the index for the last mapping used is kept, so the same instance should be
+ * reused rather than created per resolve, which rebuilds the index each time.
+ * <p>
+ * Use {@link ConfigResolveOptions#setEnvVariableMapping} to enable a mapping.
+ *
+ * @since 1.3.0
+ */
+public interface ConfigEnvVariableMapping {
+    /**
+     * Maps <code>FOO_BAR</code> to <code>foo.bar</code>: lowercases the name
+     * and treats each underscore as a path separator. Names with empty
+     * elements, such as <code>FOO__BAR</code> or <code>_FOO</code>, are not
+     * mapped.
+     */
+    ConfigEnvVariableMapping UNDERSCORES_TO_DOTS = new ConfigEnvVariableMapping() {
+        @Override
+        public String pathExpression(String variableName) {
+            List<String> elements = new ArrayList<String>();
+            int start = 0;
+            while (start <= variableName.length()) {
+                int end = variableName.indexOf('_', start);
+                if (end < 0)
+                    end = variableName.length();
+                if (end == start)
+                    return null;
+                elements.add(variableName.substring(start, end).toLowerCase(Locale.ROOT));
+                start = end + 1;
+            }
+            return ConfigUtil.joinPath(elements);
+        }
+
+        @Override
+        public String toString() {
+            return "ConfigEnvVariableMapping.UNDERSCORES_TO_DOTS";
+        }
+    };
+
+    /**
+     * Returns the path expression the given environment variable should be
+     * available at, or null if it should only be available under its own name.
+     *
+     * @param variableName
+     *            name of an environment variable
+     * @return a path expression or null
+     */
+    String pathExpression(String variableName);
+}
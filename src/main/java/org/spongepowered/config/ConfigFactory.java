@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Callable;
@@ -218,8 +219,8 @@ public final class ConfigFactory {
                 .resolve(resolveOptions);
     }
 
-    private static Config loadDefaultConfig(ConfigParseOptions parseOptions, ConfigResolveOptions resolveOptions) {
-        ClassLoader loader = parseOptions.getClassLoader();
+    private static Config loadDefaultConfig(final ConfigParseOptions parseOptions, ConfigResolveOptions resolveOptions) {
+        final ClassLoader loader = parseOptions.getClassLoader();
         if (loader == null)
             throw new ConfigException.BugOrBroken(
                     "ClassLoader should have been set here; bug in ConfigFactory. "
@@ -239,37 +240,69 @@ public final class ConfigFactory {
         if (url != null)
             specified += 1;
 
+        // the parsed application config is cached apart from the resolved
+        // result, keyed by which of these properties chose it, so that a
+        // refreshSystemProperties() which changed other properties only
+        // has to merge and resolve again
         if (specified == 0) {
-            return load(loader, "application", parseOptions, resolveOptions);
+            return load(loader, cachedParse(loader, "application", new Callable<Config>() {
+                @Override
+                public Config call() {
+                    return parseResourcesAnySyntax("application", parseOptions);
+                }
+            }), resolveOptions);
         } else if (specified > 1) {
             throw new ConfigException.Generic("You set more than one of config.file='" + file
                     + "', config.url='" + url + "', config.resource='" + resource
                     + "'; don't know which one to use!");
         } else {
             // the override file/url/resource MUST be present or it's an error
-            ConfigParseOptions overrideOptions = parseOptions.setAllowMissing(false);
+            final ConfigParseOptions overrideOptions = parseOptions.setAllowMissing(false);
             if (resource != null) {
                 if (resource.startsWith("/"))
                     resource = resource.substring(1);
+                final String r = resource;
                 // this deliberately does not parseResourcesAnySyntax; if
                 // people want that they can use an include statement.
-                Config parsedResources = parseResources(loader, resource, overrideOptions);
+                Config parsedResources = cachedParse(loader, "config.resource=" + r, new Callable<Config>() {
+                    @Override
+                    public Config call() {
+                        return parseResources(loader, r, overrideOptions);
+                    }
+                });
                 return load(loader, parsedResources, resolveOptions);
             } else if (file != null) {
-                Config parsedFile = parseFile(new File(file), overrideOptions);
+                final String f = file;
+                Config parsedFile = cachedParse(loader, "config.file=" + f, new Callable<Config>() {
+                    @Override
+                    public Config call() {
+                        return parseFile(new File(f), overrideOptions);
+                    }
+                });
                 return load(loader, parsedFile, resolveOptions);
             } else {
+                final URL u;
                 try {
-                    Config parsedURL = parseURL(new URL(url), overrideOptions);
-                    return load(loader, parsedURL, resolveOptions);
+                    u = new URL(url);
                 } catch (MalformedURLException e) {
                     throw new ConfigException.Generic("Bad URL in config.url system property: '"
                             + url + "': " + e.getMessage(), e);
                 }
+                Config parsedURL = cachedParse(loader, "config.url=" + url, new Callable<Config>() {
+                    @Override
+                    public Config call() {
+                        return parseURL(u, overrideOptions);
+                    }
+                });
+                return load(loader, parsedURL, resolveOptions);
             }
         }
     }
 
+    private static Config cachedParse(ClassLoader loader, String key, Callable<Config> parser) {
+        return ConfigImpl.computeCachedParse(loader, key, parser);
+    }
+
     /**
      * Loads a default configuration, equivalent to {@link #load(String)
      * load("application")} in most cases. This configuration should be used by
@@ -493,6 +526,30 @@ public final class ConfigFactory {
         ConfigImpl.reloadSystemPropertiesConfig();
     }
 
+    /**
+     * Picks up changes to system properties without reloading them all, for
+     * applications where libraries set system properties at runtime. The
+     * current properties are compared with those seen by the last load or
+     * refresh, and only the top-level keys with a changed property are
+     * rebuilt in {@link #systemProperties()}; the rest is shared with the
+     * previous object.
+     * <p>
+     * Unlike {@link #invalidateCaches()}, this keeps cached configs such as
+     * those from {@link #load()} and {@link #defaultReference()} when no
+     * system property changed. Those configs include every system property,
+     * so they are rebuilt if any did change, but from the parsed
+     * <code>reference.conf</code> and application config kept for each
+     * class loader: nothing is parsed again unless
+     * <code>config.resource</code>, <code>config.file</code> or
+     * <code>config.url</code> now name a different config.
+     *
+     * @return true if any system property changed
+     * @since 1.3.0
+     */
+    public static boolean refreshSystemProperties() {
+        return ConfigImpl.refreshSystemPropertiesConfig();
+    }
+
     /**
      * Gets an empty configuration. See also {@link #empty(String)} to create an
      * empty configuration with a description, which may improve user-visible
@@ -543,6 +600,116 @@ public final class ConfigFactory {
         return ConfigImpl.systemPropertiesAsConfig();
     }
 
+    /**
+     * Resolves each of the given overrides with the same base as its fallback,
+     * giving the same results as calling
+     * <code>override.withFallback(base).resolve()</code> for each one, but
+     * much faster when there are many overrides. The substitutions in the base
+     * are resolved only once; for each override, only the substitutions in the
+     * base which refer (directly or indirectly) to a path the override sets are
+     * evaluated again. Overrides are resolved in parallel.
+     *
+     * @param base
+     *            the configuration shared by all the overrides
+     * @param overrides
+     *            configurations to use in front of the base
+     * @return the resolved configurations, in the same order as the overrides
+     * @throws ConfigException.UnresolvedSubstitution
+     *             if any override can't be resolved
+     * @since 1.3.0
+     */
+    public static List<Config> resolveAll(Config base, List<? extends Config> overrides) {
+        return resolveAll(base, overrides, ConfigResolveOptions.defaults());
+    }
+
+    /**
+     * Like {@link #resolveAll(Config, List)} but allows you to specify
+     * non-default resolve options.
+     *
+     * @param base
+     *            the configuration shared by all the overrides
+     * @param overrides
+     *            configurations to use in front of the base
+     * @param options
+     *            resolve options
+     * @return the resolved configurations, in the same order as the overrides
+     * @since 1.3.0
+     */
+    public static List<Config> resolveAll(Config base, List<? extends Config> overrides,
+            ConfigResolveOptions options) {
+        return ConfigImpl.resolveAll(base, overrides, options);
+    }
+
+    /**
+     * Merges the given sources, giving the same result as
+     * <code>sources.get(0).withFallback(sources.get(1)).withFallback(sources.get(2))...</code>
+     * but walking all the sources together key by key, so each merged object
+     * is built only once instead of once per fallback. Sources can be
+     * {@link Config}s or {@link ConfigValue}s; if the merge is not an object,
+     * it's used as the fallback of an empty config. An empty list gives an
+     * empty config.
+     *
+     * @param sources
+     *            the things to merge, highest priority first
+     * @return the merged configuration, not resolved
+     * @since 1.3.0
+     */
+    public static Config mergeAll(List<? extends ConfigMergeable> sources) {
+        return ConfigImpl.mergeAll(sources);
+    }
+
+    /**
+     * Returns a config equal to the given one in which every resolved
+     * subtree, string value and key is shared with identical ones from
+     * other interned configs. This is worth it when many configs are mostly
+     * the same, for example one per tenant built from the same defaults. The
+     * shared instances are kept in a weak table, so they are only retained
+     * while some config uses them. Values are only shared if their origins
+     * are also equal, so origins and comments are unchanged; unresolved parts
+     * of the config are kept as they are.
+     *
+     * @param config
+     *            the config to intern
+     * @return an equal config sharing structure with other interned configs
+     * @since 1.3.0
+     */
+    public static Config intern(Config config) {
+        return ConfigImpl.intern(config);
+    }
+
+    /**
+     * Returns a config equal to {@code overrides.withFallback(base)} that
+     * keeps a reference to {@code base} instead of copying it. Path lookups
+     * check the overrides first and then the base, so many configs can share
+     * one large base while each costs about as much as its own overrides.
+     * Iterating, rendering or merging the returned config builds the full
+     * merged tree once and keeps it. Both configs must be resolved.
+     *
+     * @param overrides
+     *            the resolved values that win over the base
+     * @param base
+     *            the resolved config to fall back to
+     * @return a resolved config equal to the merge of the two
+     * @throws ConfigException.NotResolved
+     *             if either config is not resolved
+     * @since 1.3.0
+     */
+    public static Config overlay(Config overrides, Config base) {
+        return ConfigImpl.overlay(overrides, base);
+    }
+
+    /**
+     * Creates a profiler to pass to
+     * {@link ConfigResolveOptions#setProfiler(ConfigResolveProfiler)}, in
+     * order to find out which substitutions make resolving slow.
+     *
+     * @return a new, empty profiler
+     * @since 1.3.0
+     */
+    public static ConfigResolveProfiler newResolveProfiler() {
+        return ConfigImpl.newResolveProfiler();
+    }
+
     /**
      * Gets a <code>Config</code> containing the system's environment variables.
      * This method can return a global immutable singleton.
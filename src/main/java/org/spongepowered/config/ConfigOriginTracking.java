@@ -0,0 +1,46 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config;
+
+/**
+ * How much detail the parser records in the {@link ConfigOrigin} of parsed
+ * values, see {@link ConfigParseOptions#setOriginTracking}. Less detail makes
+ * parsing faster and the parsed config smaller, at the cost of less helpful
+ * error messages.
+ *
+ * @since 1.3.0
+ */
+public enum ConfigOriginTracking {
+    /**
+     * Values only get the description of what was parsed; there are no line
+     * numbers or comments, and {@link ConfigOrigin#filename()},
+     * {@link ConfigOrigin#url()} and {@link ConfigOrigin#resource()} are null.
+     */
+    NONE,
+    /**
+     * Values get the file, URL or resource they came from, but no line
+     * numbers or comments.
+     */
+    FILE,
+    /**
+     * Values get the file, URL or resource they came from, their line number
+     * and the comments next to them. This is the default.
+     */
+    FULL;
+}
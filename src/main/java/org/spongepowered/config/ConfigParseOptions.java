@@ -41,18 +41,20 @@ public final class ConfigParseOptions {
     final boolean allowMissing;
     final ConfigIncluder includer;
     final ClassLoader classLoader;
+    final ConfigOriginTracking originTracking;
 
     private ConfigParseOptions(ConfigSyntax syntax, String originDescription, boolean allowMissing,
-            ConfigIncluder includer, ClassLoader classLoader) {
+            ConfigIncluder includer, ClassLoader classLoader, ConfigOriginTracking originTracking) {
         this.syntax = syntax;
         this.originDescription = originDescription;
         this.allowMissing = allowMissing;
         this.includer = includer;
         this.classLoader = classLoader;
+        this.originTracking = originTracking;
     }
 
     public static ConfigParseOptions defaults() {
-        return new ConfigParseOptions(null, null, true, null, null);
+        return new ConfigParseOptions(null, null, true, null, null, ConfigOriginTracking.FULL);
     }
 
     /**
@@ -68,7 +70,7 @@ public final class ConfigParseOptions {
             return this;
         else
             return new ConfigParseOptions(syntax, this.originDescription, this.allowMissing,
-                    this.includer, this.classLoader);
+                    this.includer, this.classLoader, this.originTracking);
     }
 
     public ConfigSyntax getSyntax() {
@@ -94,7 +96,7 @@ public final class ConfigParseOptions {
             return this;
         else
             return new ConfigParseOptions(this.syntax, originDescription, this.allowMissing,
-                    this.includer, this.classLoader);
+                    this.includer, this.classLoader, this.originTracking);
     }
 
     public String getOriginDescription() {
@@ -122,7 +124,7 @@ public final class ConfigParseOptions {
             return this;
         else
             return new ConfigParseOptions(this.syntax, this.originDescription, allowMissing,
-                    this.includer, this.classLoader);
+                    this.includer, this.classLoader, this.originTracking);
     }
 
     public boolean getAllowMissing() {
@@ -140,7 +142,7 @@ public final class ConfigParseOptions {
             return this;
         else
             return new ConfigParseOptions(this.syntax, this.originDescription, this.allowMissing,
-                    includer, this.classLoader);
+                    includer, this.classLoader, this.originTracking);
     }
 
     public ConfigParseOptions prependIncluder(ConfigIncluder includer) {
@@ -179,7 +181,7 @@ public final class ConfigParseOptions {
             return this;
         else
             return new ConfigParseOptions(this.syntax, this.originDescription, this.allowMissing,
-                    this.includer, loader);
+                    this.includer, loader, this.originTracking);
     }
 
     /**
@@ -195,4 +197,31 @@ public final class ConfigParseOptions {
         else
             return this.classLoader;
     }
+
+    /**
+     * Set how much detail to record in the origins of parsed values. Hot
+     * paths which never show origins to anyone can use
+     * {@link ConfigOriginTracking#FILE} or {@link ConfigOriginTracking#NONE}
+     * to skip creating an origin per line and keeping comments; parse errors
+     * then only name the file, not the line. The default is
+     * {@link ConfigOriginTracking#FULL}.
+     *
+     * @param originTracking
+     *            how much to track, or {@code null} for the default
+     * @return options with the origin tracking set
+     * @since 1.3.0
+     */
+    public ConfigParseOptions setOriginTracking(ConfigOriginTracking originTracking) {
+        if (originTracking == null)
+            originTracking = ConfigOriginTracking.FULL;
+        if (this.originTracking == originTracking)
+            return this;
+        else
+            return new ConfigParseOptions(this.syntax, this.originDescription, this.allowMissing,
+                    this.includer, this.classLoader, originTracking);
+    }
+
+    public ConfigOriginTracking getOriginTracking() {
+        return originTracking;
+    }
 }
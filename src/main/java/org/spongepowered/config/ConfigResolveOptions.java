@@ -44,10 +44,15 @@ package org.spongepowered.config;
 public final class ConfigResolveOptions {
     private final boolean useSystemEnvironment;
     private final boolean allowUnresolved;
+    private final ConfigEnvVariableMapping envVariableMapping;
+    private final ConfigResolveProfiler profiler;
 
-    private ConfigResolveOptions(boolean useSystemEnvironment, boolean allowUnresolved) {
+    private ConfigResolveOptions(boolean useSystemEnvironment, boolean allowUnresolved,
+            ConfigEnvVariableMapping envVariableMapping, ConfigResolveProfiler profiler) {
         this.useSystemEnvironment = useSystemEnvironment;
         this.allowUnresolved = allowUnresolved;
+        this.envVariableMapping = envVariableMapping;
+        this.profiler = profiler;
     }
 
     /**
@@ -57,7 +62,7 @@ public final class ConfigResolveOptions {
      * @return the default resolve options
      */
     public static ConfigResolveOptions defaults() {
-        return new ConfigResolveOptions(true, false);
+        return new ConfigResolveOptions(true, false, null, null);
     }
 
     /**
@@ -79,7 +84,7 @@ public final class ConfigResolveOptions {
      * @return options with requested setting for use of environment variables
      */
     public ConfigResolveOptions setUseSystemEnvironment(boolean value) {
-        return new ConfigResolveOptions(value, allowUnresolved);
+        return new ConfigResolveOptions(value, allowUnresolved, envVariableMapping, profiler);
     }
 
     /**
@@ -106,7 +111,7 @@ public final class ConfigResolveOptions {
      * @since 1.2.0
      */
     public ConfigResolveOptions setAllowUnresolved(boolean value) {
-        return new ConfigResolveOptions(useSystemEnvironment, value);
+        return new ConfigResolveOptions(useSystemEnvironment, value, envVariableMapping, profiler);
     }
 
     /**
@@ -119,4 +124,64 @@ public final class ConfigResolveOptions {
     public boolean getAllowUnresolved() {
         return allowUnresolved;
     }
+
+    /**
+     * Returns options with the given mapping from environment variable names
+     * to paths. By default there is no mapping, so an environment variable can
+     * only be found by a substitution of its exact name, such as
+     * <code>${HOME}</code>. With
+     * {@link ConfigEnvVariableMapping#UNDERSCORES_TO_DOTS}, a substitution
+     * <code>${foo.bar}</code> can also be satisfied by <code>FOO_BAR</code>.
+     * This has no effect unless
+     * {@link #setUseSystemEnvironment(boolean) the system environment} is
+     * used.
+     *
+     * @param mapping
+     *            the mapping, or null for exact names only
+     * @return options with the requested environment variable mapping
+     * @since 1.3.0
+     */
+    public ConfigResolveOptions setEnvVariableMapping(ConfigEnvVariableMapping mapping) {
+        return new ConfigResolveOptions(useSystemEnvironment, allowUnresolved, mapping, profiler);
+    }
+
+    /**
+     * Returns the mapping used to find environment variables by path, or null
+     * if they are only found by exact name. This method is mostly used by the
+     * config lib internally, not by applications.
+     *
+     * @return the environment variable mapping or null
+     * @since 1.3.0
+     */
+    public ConfigEnvVariableMapping getEnvVariableMapping() {
+        return envVariableMapping;
+    }
+
+    /**
+     * Returns options which record statistics about substitutions in the given
+     * profiler, see {@link ConfigResolveProfiler}. By default there is no
+     * profiler.
+     *
+     * @param profiler
+     *            a profiler from {@link ConfigFactory#newResolveProfiler()}, or
+     *            null to stop profiling
+     * @return options with the requested profiler
+     * @since 1.3.0
+     */
+    public ConfigResolveOptions setProfiler(ConfigResolveProfiler profiler) {
+        return new ConfigResolveOptions(useSystemEnvironment, allowUnresolved, envVariableMapping,
+                profiler);
+    }
+
+    /**
+     * Returns the profiler to record substitution statistics in, or null if
+     * not profiling. This method is mostly used by the config lib internally,
+     * not by applications.
+     *
+     * @return the profiler or null
+     * @since 1.3.0
+     */
+    public ConfigResolveProfiler getProfiler() {
+        return profiler;
+    }
 }
@@ -0,0 +1,141 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config;
+
+import java.util.List;
+
+/**
+ * Collects statistics about substitutions while resolving, to find out why a
+ * call to {@link Config#resolve()} is slow. Create one with
+ * {@link ConfigFactory#newResolveProfiler()}, pass it to the resolve with
+ * {@link ConfigResolveOptions#setProfiler}, and then look at
+ * {@link #mostExpensive(int)} or {@link #report(int)}.
+ * <p>
+ * Statistics are kept per substitution expression (such as
+ * <code>${foo.bar}</code>) and accumulate across every resolve the profiler
+ * is used with, until {@link #reset()}. A profiler can be used by several
+ * threads at once. Profiling adds overhead, so don't leave it on in
+ * production.
+ * <p>
+ * <em>Do not implement this interface</em>; it should only be implemented by
+ * the config library.
+ *
+ * @since 1.3.0
+ */
+public interface ConfigResolveProfiler {
+    /**
+     * The statistics for one substitution expression.
+     */
+    public interface Entry {
+        /**
+         * Returns the substitution expression, such as <code>${foo.bar}</code>.
+         *
+         * @return the expression
+         */
+        public String expression();
+
+        /**
+         * Returns some of the places the expression appears; there may be more
+         * than these.
+         *
+         * @return origins of the expression
+         */
+        public List<ConfigOrigin> origins();
+
+        /**
+         * Returns how many times the expression was looked up.
+         *
+         * @return number of lookups
+         */
+        public long lookups();
+
+        /**
+         * Returns how many values needed by the lookups were found already
+         * resolved in the resolve's memo table.
+         *
+         * @return number of memo hits
+         */
+        public long memoHits();
+
+        /**
+         * Returns how many partial resolves (resolving only the path to the
+         * value being looked up) the lookups needed.
+         *
+         * @return number of restricted resolves
+         */
+        public long restrictedResolves();
+
+        /**
+         * Returns how many times the lookups had to use the remainder of a
+         * merge stack in place of the whole stack, which happens when a
+         * substitution refers back to the value it's part of.
+         *
+         * @return number of delayed merge replacements
+         */
+        public long replacements();
+
+        /**
+         * Returns how many times the lookups ran into a cycle.
+         *
+         * @return number of cycles
+         */
+        public long cycles();
+
+        /**
+         * Returns the time spent looking up the expression, including the
+         * time spent on other substitutions the lookups depended on.
+         *
+         * @return total time in nanoseconds
+         */
+        public long totalNanos();
+
+        /**
+         * Returns the time spent looking up the expression, not including the
+         * time spent on other substitutions the lookups depended on.
+         *
+         * @return own time in nanoseconds
+         */
+        public long selfNanos();
+    }
+
+    /**
+     * Returns the entries which took the most time of their own (see
+     * {@link Entry#selfNanos()}), most expensive first.
+     *
+     * @param limit
+     *            maximum number of entries to return
+     * @return the most expensive entries
+     */
+    public List<Entry> mostExpensive(int limit);
+
+    /**
+     * Returns a human-readable report of the {@link #mostExpensive(int)}
+     * entries, one per line.
+     *
+     * @param limit
+     *            maximum number of entries to include
+     * @return the report
+     */
+    public String report(int limit);
+
+    /**
+     * Discards all statistics collected so far.
+     */
+    public void reset();
+}
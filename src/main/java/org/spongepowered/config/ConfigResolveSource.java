@@ -0,0 +1,40 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config;
+
+/**
+ * A {@link Config} which has been indexed for use as the source of
+ * substitution values, created with {@link Config#asResolveSource()} and used
+ * with {@link Config#resolveWith(ConfigResolveSource)}. It's worth creating one
+ * when you resolve many configurations against the same source; it is
+ * immutable and may be shared between threads.
+ * <p>
+ * <em>Do not implement this interface</em>; it should only be implemented by
+ * the config library.
+ *
+ * @since 1.3.0
+ */
+public interface ConfigResolveSource {
+    /**
+     * Returns the configuration this source was created from.
+     *
+     * @return the source configuration
+     */
+    Config toConfig();
+}
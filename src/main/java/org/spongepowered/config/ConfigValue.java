@@ -18,6 +18,10 @@
  */
 package org.spongepowered.config;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
 /**
  * An immutable value, following the <a href="http://json.org">JSON</a> type
  * schema.
@@ -98,6 +102,61 @@ public interface ConfigValue extends ConfigMergeable {
      */
     String render(ConfigRenderOptions options);
 
+    /**
+     * Like {@link #render(ConfigRenderOptions)} but writes the rendering to an
+     * {@link Appendable}, such as a {@link java.io.Writer}, a few kilobytes at
+     * a time as it goes, rather than building it as one string. The memory
+     * needed stays small however large the value is.
+     * 
+     * @param out
+     *            where to write the rendering
+     * @param options
+     *            the rendering options
+     * @throws IOException
+     *             if writing to out fails; what was written is then
+     *             incomplete
+     * @since 1.3.0
+     */
+    void render(Appendable out, ConfigRenderOptions options) throws IOException;
+
+    /**
+     * Like {@link #render(Appendable, ConfigRenderOptions)} but writes the
+     * rendering as UTF-8 bytes. With JSON options and no comments, as with
+     * {@link ConfigRenderOptions#concise()} (formatted or not), a resolved
+     * value is written straight to bytes without rendering a string and
+     * encoding it; other options and unresolved values still work, through
+     * an encoding writer.
+     * <p>
+     * This is named apart from the render overloads so that a stream which
+     * is also an {@link Appendable}, such as a {@link java.io.PrintStream},
+     * still picks {@link #render(Appendable, ConfigRenderOptions)} without a
+     * cast.
+     * 
+     * @param out
+     *            where to write the rendering; not closed or flushed
+     * @param options
+     *            the rendering options
+     * @throws IOException
+     *             if writing to out fails
+     * @since 1.3.0
+     */
+    void renderUtf8(OutputStream out, ConfigRenderOptions options) throws IOException;
+
+    /**
+     * Like {@link #renderUtf8(OutputStream, ConfigRenderOptions)} but writes the
+     * UTF-8 bytes at the buffer's position, advancing it past them.
+     * 
+     * @param buffer
+     *            where to write the rendering
+     * @param options
+     *            the rendering options
+     * @throws java.nio.BufferOverflowException
+     *             if the buffer is too small; what was written is then
+     *             incomplete and the position is unspecified
+     * @since 1.3.0
+     */
+    void renderUtf8(ByteBuffer buffer, ConfigRenderOptions options);
+
     @Override
     ConfigValue withFallback(ConfigMergeable other);
 
@@ -18,6 +18,12 @@
  */
 package org.spongepowered.config.impl;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -40,6 +46,8 @@ import org.spongepowered.config.ConfigValue;
  */
 abstract class AbstractConfigValue implements ConfigValue, MergeableValue {
 
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
     final private SimpleConfigOrigin origin;
 
     AbstractConfigValue(ConfigOrigin origin) {
@@ -62,19 +70,30 @@ abstract class AbstractConfigValue implements ConfigValue, MergeableValue {
      *
      * Contrast with ConfigException.NotResolved which just means nobody called
      * resolve().
+     *
+     * Because this is pure control flow (it's thrown and caught all the time
+     * by optional substitutions like ${?foo} that refer back to themselves),
+     * it doesn't fill in a stack trace, and the trace of substitutions is only
+     * rendered to a string if someone asks for it.
      */
     static class NotPossibleToResolve extends Exception {
         private static final long serialVersionUID = 1L;
 
-        final private String traceString;
+        // a snapshot, since the context's trace keeps changing
+        final private transient List<SubstitutionExpression> trace;
 
         NotPossibleToResolve(ResolveContext context) {
             super("was not possible to resolve");
-            this.traceString = context.traceString();
+            this.trace = context.traceSnapshot();
         }
 
         String traceString() {
-            return traceString;
+            return ResolveContext.traceString(trace);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
         }
     }
 
@@ -170,6 +189,27 @@ abstract class AbstractConfigValue implements ConfigValue, MergeableValue {
         return new ConfigDelayedMerge(origin, stack);
     }
 
+    // Adds a value to the bottom of a delayed merge stack. Two resolved
+    // objects in a row are merged right away: nothing in them can look back
+    // into the stack, so keeping them apart only makes every peek and
+    // relativized() walk more layers. We don't collapse below an object
+    // that ignores fallbacks, since the stack must still resolve whatever
+    // comes after it.
+    private static void addToMergeStack(List<AbstractConfigValue> stack, AbstractConfigValue v) {
+        if (!stack.isEmpty() && isResolvedObject(v)) {
+            AbstractConfigValue last = stack.get(stack.size() - 1);
+            if (isResolvedObject(last) && !last.ignoresFallbacks()) {
+                stack.set(stack.size() - 1, last.withFallback(v));
+                return;
+            }
+        }
+        stack.add(v);
+    }
+
+    private static boolean isResolvedObject(AbstractConfigValue v) {
+        return v instanceof SimpleConfigObject && v.resolveStatus() == ResolveStatus.RESOLVED;
+    }
+
     protected final AbstractConfigValue mergedWithTheUnmergeable(
             Collection<AbstractConfigValue> stack, Unmergeable fallback) {
         requireNotIgnoringFallbacks();
@@ -178,7 +218,9 @@ abstract class AbstractConfigValue implements ConfigValue, MergeableValue {
         // then a merge may be required; delay until we resolve.
         List<AbstractConfigValue> newStack = new ArrayList<AbstractConfigValue>();
         newStack.addAll(stack);
-        newStack.addAll(fallback.unmergedValues());
+        for (AbstractConfigValue v : fallback.unmergedValues()) {
+            addToMergeStack(newStack, v);
+        }
         return constructDelayedMerge(AbstractConfigObject.mergeOrigins(newStack), newStack);
     }
 
@@ -190,7 +232,7 @@ abstract class AbstractConfigValue implements ConfigValue, MergeableValue {
         // back to the fallback.
         List<AbstractConfigValue> newStack = new ArrayList<AbstractConfigValue>();
         newStack.addAll(stack);
-        newStack.add(fallback);
+        addToMergeStack(newStack, fallback);
         return constructDelayedMerge(AbstractConfigObject.mergeOrigins(newStack), newStack);
     }
 
@@ -263,6 +305,33 @@ abstract class AbstractConfigValue implements ConfigValue, MergeableValue {
         }
     }
 
+    // same as folding withFallback() over the values, but a run of
+    // SimpleConfigObject is merged in one pass instead of building an
+    // intermediate object for each of them.
+    static AbstractConfigValue mergeAll(List<AbstractConfigValue> values) {
+        AbstractConfigValue result = values.get(0);
+        int i = 1;
+        while (i < values.size() && !result.ignoresFallbacks()) {
+            if (result instanceof SimpleConfigObject && values.get(i) instanceof SimpleConfigObject) {
+                List<SimpleConfigObject> run = new ArrayList<SimpleConfigObject>();
+                run.add((SimpleConfigObject) result);
+                while (i < values.size() && values.get(i) instanceof SimpleConfigObject) {
+                    SimpleConfigObject o = (SimpleConfigObject) values.get(i);
+                    run.add(o);
+                    i += 1;
+                    // anything after this is ignored anyway
+                    if (o.ignoresFallbacks())
+                        break;
+                }
+                result = SimpleConfigObject.mergeObjects(run);
+            } else {
+                result = result.withFallback(values.get(i));
+                i += 1;
+            }
+        }
+        return result;
+    }
+
     protected boolean canEqual(Object other) {
         return other instanceof ConfigValue;
     }
@@ -293,12 +362,12 @@ abstract class AbstractConfigValue implements ConfigValue, MergeableValue {
 
     @Override
     public final String toString() {
-        StringBuilder sb = new StringBuilder();
+        RenderBuffer sb = new RenderBuffer(false /* memoize */);
         render(sb, 0, true /* atRoot */, null /* atKey */, ConfigRenderOptions.concise());
         return getClass().getSimpleName() + "(" + sb.toString() + ")";
     }
 
-    protected static void indent(StringBuilder sb, int indent, ConfigRenderOptions options) {
+    protected static void indent(RenderBuffer sb, int indent, ConfigRenderOptions options) {
         if (options.getFormatted()) {
             int remaining = indent;
             while (remaining > 0) {
@@ -308,7 +377,7 @@ abstract class AbstractConfigValue implements ConfigValue, MergeableValue {
         }
     }
 
-    protected void render(StringBuilder sb, int indent, boolean atRoot, String atKey, ConfigRenderOptions options) {
+    protected void render(RenderBuffer sb, int indent, boolean atRoot, String atKey, ConfigRenderOptions options) {
         if (atKey != null) {
             String renderedKey;
             if (options.getJson())
@@ -336,7 +405,7 @@ abstract class AbstractConfigValue implements ConfigValue, MergeableValue {
         render(sb, indent, atRoot, options);
     }
 
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    protected void render(RenderBuffer sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         Object u = unwrapped();
         sb.append(u.toString());
     }
@@ -348,11 +417,41 @@ abstract class AbstractConfigValue implements ConfigValue, MergeableValue {
 
     @Override
     public final String render(ConfigRenderOptions options) {
-        StringBuilder sb = new StringBuilder();
+        RenderBuffer sb = new RenderBuffer();
         render(sb, 0, true, null, options);
         return sb.toString();
     }
 
+    @Override
+    public final void render(Appendable out, ConfigRenderOptions options) throws IOException {
+        RenderBuffer sb = new RenderBuffer(out);
+        try {
+            render(sb, 0, true, null, options);
+        } catch (RenderBuffer.WriteFailed e) {
+            throw e.getCause();
+        }
+        sb.finish();
+    }
+
+    @Override
+    public final void renderUtf8(OutputStream out, ConfigRenderOptions options) throws IOException {
+        if (JsonBytesRenderer.canRender(this, options)) {
+            JsonBytesRenderer.render(this, options, out);
+        } else {
+            Writer writer = new OutputStreamWriter(out, UTF8);
+            render(writer, options);
+            writer.flush();
+        }
+    }
+
+    @Override
+    public final void renderUtf8(ByteBuffer buffer, ConfigRenderOptions options) {
+        if (JsonBytesRenderer.canRender(this, options))
+            JsonBytesRenderer.render(this, options, buffer);
+        else
+            buffer.put(render(options).getBytes(UTF8));
+    }
+
     // toString() is a debugging-oriented string but this is defined
     // to create a string that would parse back to the value in JSON.
     // It only works for primitive values (that would be a single token)
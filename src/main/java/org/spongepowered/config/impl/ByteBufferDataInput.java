@@ -0,0 +1,259 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config.impl;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * DataInput over a ByteBuffer, the reading side of ByteBufferDataOutput.
+ * Reading from a channel pulls in exactly one chunk at a time, so nothing
+ * after the config's end marker is consumed. A caller's buffer is read
+ * through a big-endian view whatever its own order, and its position moved
+ * along in finish().
+ */
+final class ByteBufferDataInput implements DataInput {
+
+    private ByteBuffer buffer;
+    // the buffer we were given, or null when reading from a channel
+    final private ByteBuffer callerOrNull;
+    final private ReadableByteChannel channelOrNull;
+    // the most a chunk can hold, as ByteBufferDataOutput writes them
+    final private int maxChunkLength;
+    final private ByteBuffer header;
+    private boolean ended;
+
+    ByteBufferDataInput(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.callerOrNull = buffer;
+        this.channelOrNull = null;
+        this.maxChunkLength = 0;
+        this.header = null;
+    }
+
+    ByteBufferDataInput(ReadableByteChannel channel, int chunkSize) {
+        // a heap buffer: a direct one per call would only be freed by the
+        // GC, and channels already copy through a cached direct buffer
+        this.buffer = ByteBuffer.allocate(chunkSize);
+        this.buffer.limit(0);
+        this.callerOrNull = null;
+        this.channelOrNull = channel;
+        // less the length header
+        this.maxChunkLength = chunkSize - 4;
+        this.header = ByteBuffer.allocate(4);
+    }
+
+    private void require(int n) throws IOException {
+        while (buffer.remaining() < n) {
+            if (!nextChunk())
+                throw new EOFException("encoded config ends too soon");
+        }
+    }
+
+    // whether there's another byte, as readLine() needs to know without
+    // failing at the end
+    private boolean hasMore() throws IOException {
+        while (!buffer.hasRemaining()) {
+            if (!nextChunk())
+                return false;
+        }
+        return true;
+    }
+
+    private void readFully(ByteBuffer dst) throws IOException {
+        while (dst.hasRemaining()) {
+            if (channelOrNull.read(dst) < 0)
+                throw new EOFException("channel closed in the middle of a config");
+        }
+    }
+
+    // returns the next chunk's length, 0 at the end marker
+    private int readChunkLength() throws IOException {
+        header.clear();
+        readFully(header);
+        int length = header.getInt(0);
+        // never allocate for more than a writer would have sent
+        if (length < 0 || length > maxChunkLength)
+            throw new IOException("bad chunk length " + length);
+        return length;
+    }
+
+    // appends the next chunk to what's left in the buffer, false at the end
+    // of the config
+    private boolean nextChunk() throws IOException {
+        if (channelOrNull == null || ended)
+            return false;
+        int length = readChunkLength();
+        if (length == 0) {
+            ended = true;
+            return false;
+        }
+        buffer.compact();
+        if (buffer.remaining() < length) {
+            ByteBuffer bigger = ByteBuffer.allocate(buffer.position() + length);
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+        buffer.limit(buffer.position() + length);
+        readFully(buffer);
+        buffer.flip();
+        return true;
+    }
+
+    // fails right away if a length read from the input is more than is
+    // left of it; only a caller's buffer knows that, a channel just runs
+    // out later
+    void checkLength(int length) throws IOException {
+        if (callerOrNull != null && length > buffer.remaining())
+            throw new EOFException("encoded config claims " + length + " more bytes but has "
+                    + buffer.remaining());
+    }
+
+    // checks that the config used up everything up to its end marker, and
+    // reads the marker; or advances the caller's buffer past what was read
+    void finish() throws IOException {
+        if (callerOrNull != null) {
+            callerOrNull.position(buffer.position());
+            return;
+        }
+        if (ended)
+            return;
+        if (buffer.hasRemaining() || readChunkLength() != 0)
+            throw new IOException("unexpected data after the end of the encoded config");
+        ended = true;
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        // may span chunks
+        while (len > 0) {
+            require(1);
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public int skipBytes(int n) throws IOException {
+        int skipped = 0;
+        while (skipped < n) {
+            require(1);
+            int step = Math.min(n - skipped, buffer.remaining());
+            buffer.position(buffer.position() + step);
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return readUnsignedByte() != 0;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        require(1);
+        return buffer.get();
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return readByte() & 0xFF;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        require(2);
+        return buffer.getShort();
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xFFFF;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        require(2);
+        return buffer.getChar();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        require(4);
+        return buffer.getInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        require(8);
+        return buffer.getLong();
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        require(4);
+        return buffer.getFloat();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        require(8);
+        return buffer.getDouble();
+    }
+
+    // as DataInputStream.readLine(), each byte is a char and a line ends at
+    // \n, \r or \r\n; null at the end
+    @Override
+    public String readLine() throws IOException {
+        if (!hasMore())
+            return null;
+        StringBuilder sb = new StringBuilder();
+        while (hasMore()) {
+            int c = buffer.get() & 0xFF;
+            if (c == '\n')
+                break;
+            if (c == '\r') {
+                if (hasMore() && buffer.get(buffer.position()) == '\n')
+                    buffer.get();
+                break;
+            }
+            sb.append((char) c);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return DataInputStream.readUTF(this);
+    }
+}
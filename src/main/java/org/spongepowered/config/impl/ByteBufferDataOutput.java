@@ -0,0 +1,218 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * DataOutput over a ByteBuffer, so the compact serialization format can be
+ * written without an ObjectOutputStream. Writing to a caller's buffer throws
+ * BufferOverflowException when it's full. Writing to a channel goes through
+ * our own buffer, sent as chunks each prefixed with its length and followed
+ * by a zero length once finish() is called, so that a reader knows where
+ * the config ends without closing the channel. Writing to neither goes
+ * into a heap buffer that grows as needed, so a config is encoded once
+ * whatever its size; toByteBuffer() then copies out exactly what was
+ * written.
+ * <p>
+ * The format is big-endian like DataOutputStream whatever the order of the
+ * caller's buffer, so we write through a big-endian view of it and move the
+ * caller's position along in finish().
+ */
+final class ByteBufferDataOutput implements DataOutput {
+
+    private ByteBuffer buffer;
+    // the buffer we were given, or null when writing to a channel or our
+    // own growing buffer
+    final private ByteBuffer callerOrNull;
+    final private WritableByteChannel channelOrNull;
+
+    ByteBufferDataOutput(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.callerOrNull = buffer;
+        this.channelOrNull = null;
+    }
+
+    ByteBufferDataOutput(int initialSize) {
+        this.buffer = ByteBuffer.allocate(initialSize);
+        this.callerOrNull = null;
+        this.channelOrNull = null;
+    }
+
+    ByteBufferDataOutput(WritableByteChannel channel, int chunkSize) {
+        // a heap buffer, see ByteBufferDataInput
+        this.buffer = ByteBuffer.allocate(chunkSize);
+        this.callerOrNull = null;
+        this.channelOrNull = channel;
+        // room for the chunk length
+        buffer.position(4);
+    }
+
+    private void ensure(int n) throws IOException {
+        if (buffer.remaining() >= n || callerOrNull != null) {
+            // a caller's buffer overflows on its own
+            return;
+        } else if (channelOrNull != null) {
+            flushChunk();
+        } else {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2,
+                    buffer.position() + n));
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+    }
+
+    // a heap buffer of exactly what was written to our own buffer, ready
+    // to be read
+    ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    private void flushChunk() throws IOException {
+        int length = buffer.position() - 4;
+        if (length == 0)
+            return;
+        buffer.putInt(0, length);
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channelOrNull.write(buffer);
+        buffer.clear();
+        buffer.position(4);
+    }
+
+    // sends anything buffered and the end marker, or advances the caller's
+    // buffer past what was written
+    void finish() throws IOException {
+        if (callerOrNull != null) {
+            callerOrNull.position(buffer.position());
+            return;
+        } else if (channelOrNull == null) {
+            return;
+        }
+        flushChunk();
+        buffer.clear();
+        buffer.putInt(0);
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channelOrNull.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensure(1);
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (channelOrNull == null) {
+            ensure(len);
+            buffer.put(b, off, len);
+            return;
+        }
+        // may be bigger than a chunk
+        while (len > 0) {
+            ensure(1);
+            int n = Math.min(len, buffer.remaining());
+            buffer.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void writeBoolean(boolean v) throws IOException {
+        write(v ? 1 : 0);
+    }
+
+    @Override
+    public void writeByte(int v) throws IOException {
+        write(v);
+    }
+
+    @Override
+    public void writeShort(int v) throws IOException {
+        ensure(2);
+        buffer.putShort((short) v);
+    }
+
+    @Override
+    public void writeChar(int v) throws IOException {
+        ensure(2);
+        buffer.putChar((char) v);
+    }
+
+    @Override
+    public void writeInt(int v) throws IOException {
+        ensure(4);
+        buffer.putInt(v);
+    }
+
+    @Override
+    public void writeLong(long v) throws IOException {
+        ensure(8);
+        buffer.putLong(v);
+    }
+
+    @Override
+    public void writeFloat(float v) throws IOException {
+        ensure(4);
+        buffer.putFloat(v);
+    }
+
+    @Override
+    public void writeDouble(double v) throws IOException {
+        ensure(8);
+        buffer.putDouble(v);
+    }
+
+    @Override
+    public void writeBytes(String s) throws IOException {
+        for (int i = 0; i < s.length(); ++i)
+            write(s.charAt(i));
+    }
+
+    @Override
+    public void writeChars(String s) throws IOException {
+        for (int i = 0; i < s.length(); ++i)
+            writeChar(s.charAt(i));
+    }
+
+    @Override
+    public void writeUTF(String s) throws IOException {
+        // not used by the codec, so not worth reimplementing modified UTF-8
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF(s);
+        write(bytes.toByteArray());
+    }
+}
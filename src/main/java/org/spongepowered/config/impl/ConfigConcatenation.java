@@ -99,6 +99,10 @@ final class ConfigConcatenation extends AbstractConfigValue implements Unmergeab
         return Collections.singleton(this);
     }
 
+    List<AbstractConfigValue> pieces() {
+        return pieces;
+    }
+
     /**
      * Add left and right, or their merger, to builder.
      */
@@ -257,7 +261,7 @@ final class ConfigConcatenation extends AbstractConfigValue implements Unmergeab
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    protected void render(RenderBuffer sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         for (AbstractConfigValue p : pieces) {
             p.render(sb, indent, atRoot, options);
         }
@@ -231,12 +231,12 @@ final class ConfigDelayedMerge extends AbstractConfigValue implements Unmergeabl
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, String atKey, ConfigRenderOptions options) {
+    protected void render(RenderBuffer sb, int indent, boolean atRoot, String atKey, ConfigRenderOptions options) {
         render(stack, sb, indent, atRoot, atKey, options);
     }
 
     // static method also used by ConfigDelayedMergeObject.
-    static void render(List<AbstractConfigValue> stack, StringBuilder sb, int indent, boolean atRoot, String atKey,
+    static void render(List<AbstractConfigValue> stack, RenderBuffer sb, int indent, boolean atRoot, String atKey,
             ConfigRenderOptions options) {
         boolean commentMerge = options.getComments();
         if (commentMerge) {
@@ -254,7 +254,15 @@ final class ConfigDelayedMerge extends AbstractConfigValue implements Unmergeabl
         Collections.reverse(reversed);
 
         int i = 0;
+        boolean first = true;
         for (AbstractConfigValue v : reversed) {
+            if (first) {
+                first = false;
+            } else {
+                sb.append(",");
+                if (options.getFormatted())
+                    sb.append('\n');
+            }
             if (commentMerge) {
                 indent(sb, indent, options);
                 if (atKey != null) {
@@ -284,16 +292,9 @@ final class ConfigDelayedMerge extends AbstractConfigValue implements Unmergeabl
                     sb.append(":");
             }
             v.render(sb, indent, atRoot, options);
-            sb.append(",");
-            if (options.getFormatted())
-                sb.append('\n');
-        }
-        // chop comma or newline
-        sb.setLength(sb.length() - 1);
-        if (options.getFormatted()) {
-            sb.setLength(sb.length() - 1); // also chop comma
-            sb.append("\n"); // put a newline back
         }
+        if (options.getFormatted())
+            sb.append("\n");
         if (commentMerge) {
             indent(sb, indent, options);
             sb.append("# ) end of unresolved merge\n");
@@ -19,7 +19,11 @@
 package org.spongepowered.config.impl;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -27,15 +31,19 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
 
 import org.spongepowered.config.Config;
 import org.spongepowered.config.ConfigException;
 import org.spongepowered.config.ConfigIncluder;
+import org.spongepowered.config.ConfigMergeable;
 import org.spongepowered.config.ConfigObject;
 import org.spongepowered.config.ConfigOrigin;
 import org.spongepowered.config.ConfigParseOptions;
 import org.spongepowered.config.ConfigParseable;
+import org.spongepowered.config.ConfigResolveOptions;
+import org.spongepowered.config.ConfigResolveProfiler;
 import org.spongepowered.config.ConfigValue;
 import org.spongepowered.config.impl.SimpleIncluder.NameSource;
 
@@ -44,13 +52,45 @@ public class ConfigImpl {
 
     private static class LoaderCache {
         private Config currentSystemProperties;
+        private int currentReloads;
         private WeakReference<ClassLoader> currentLoader;
         private Map<String, Config> cache;
+        // parsed but unresolved layers, such as reference.conf, per loader.
+        // They don't depend on system properties, so unlike the resolved
+        // configs above they're kept when the properties are refreshed, and
+        // rebuilding a resolved config after a refresh only has to merge
+        // and resolve them again. Only a reload (invalidateCaches()) drops
+        // them, since the files may have changed.
+        private final Map<ClassLoader, Map<String, Config>> parsed;
 
         LoaderCache() {
             this.currentSystemProperties = null;
+            this.currentReloads = 0;
             this.currentLoader = new WeakReference<ClassLoader>(null);
             this.cache = new HashMap<String, Config>();
+            this.parsed = new WeakHashMap<ClassLoader, Map<String, Config>>();
+        }
+
+        private void dropParsedIfReloaded() {
+            int reloads = systemPropertiesReloads();
+            if (reloads != currentReloads) {
+                parsed.clear();
+                currentReloads = reloads;
+            }
+        }
+
+        private static Config call(Callable<Config> updater) {
+            Config config;
+            try {
+                config = updater.call();
+            } catch (RuntimeException e) {
+                throw e; // this will include ConfigException
+            } catch (Exception e) {
+                throw new ConfigException.Generic(e.getMessage(), e);
+            }
+            if (config == null)
+                throw new ConfigException.BugOrBroken("null config from cache updater");
+            return config;
         }
 
         // for now, caching as long as the loader remains the same,
@@ -67,39 +107,59 @@ public class ConfigImpl {
                 cache.clear();
                 currentSystemProperties = systemProperties;
             }
+            dropParsedIfReloaded();
 
             Config config = cache.get(key);
             if (config == null) {
-                try {
-                    config = updater.call();
-                } catch (RuntimeException e) {
-                    throw e; // this will include ConfigException
-                } catch (Exception e) {
-                    throw new ConfigException.Generic(e.getMessage(), e);
-                }
-                if (config == null)
-                    throw new ConfigException.BugOrBroken("null config from cache updater");
+                config = call(updater);
                 cache.put(key, config);
             }
 
             return config;
         }
+
+        synchronized Config getOrElseParse(ClassLoader loader, String key, Callable<Config> parser) {
+            dropParsedIfReloaded();
+            Map<String, Config> forLoader = parsed.get(loader);
+            if (forLoader == null) {
+                forLoader = new HashMap<String, Config>();
+                parsed.put(loader, forLoader);
+            }
+            Config config = forLoader.get(key);
+            if (config == null) {
+                config = call(parser);
+                forLoader.put(key, config);
+            }
+            return config;
+        }
     }
 
     private static class LoaderCacheHolder {
         static final LoaderCache cache = new LoaderCache();
     }
 
-    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
-    public static Config computeCachedConfig(ClassLoader loader, String key,
-            Callable<Config> updater) {
-        LoaderCache cache;
+    private static LoaderCache loaderCache() {
         try {
-            cache = LoaderCacheHolder.cache;
+            return LoaderCacheHolder.cache;
         } catch (ExceptionInInitializerError e) {
             throw ConfigImplUtil.extractInitializerError(e);
         }
-        return cache.getOrElseUpdate(loader, key, updater);
+    }
+
+    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
+    public static Config computeCachedConfig(ClassLoader loader, String key,
+            Callable<Config> updater) {
+        return loaderCache().getOrElseUpdate(loader, key, updater);
+    }
+
+    /**
+     * For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI.
+     * Caches an unresolved parse, which must not depend on system
+     * properties, until the next ConfigFactory.invalidateCaches().
+     */
+    public static Config computeCachedParse(ClassLoader loader, String key,
+            Callable<Config> parser) {
+        return loaderCache().getOrElseParse(loader, key, parser);
     }
 
 
@@ -294,6 +354,187 @@ public class ConfigImpl {
         }
     }
 
+    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
+    public static List<Config> resolveAll(Config base, List<? extends Config> overrides,
+            ConfigResolveOptions options) {
+        SharedBaseResolver resolver = new SharedBaseResolver(((SimpleConfig) base).root(), options);
+        return resolver.resolveAll(overrides);
+    }
+
+    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
+    public static Config mergeAll(List<? extends ConfigMergeable> sources) {
+        if (sources.isEmpty())
+            return emptyConfig(null);
+
+        List<AbstractConfigValue> values = new ArrayList<AbstractConfigValue>(sources.size());
+        for (ConfigMergeable source : sources) {
+            values.add((AbstractConfigValue) ((MergeableValue) source).toFallbackValue());
+        }
+        AbstractConfigValue merged = AbstractConfigValue.mergeAll(values);
+        if (merged instanceof AbstractConfigObject)
+            return ((AbstractConfigObject) merged).toConfig();
+        else
+            return SimpleConfigObject.empty().withFallback(merged).toConfig();
+    }
+
+    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
+    public static Config intern(Config config) {
+        AbstractConfigObject root = ((SimpleConfig) config).toFallbackValue();
+        AbstractConfigValue interned = ConfigInterner.intern(root);
+        if (interned == root)
+            return config;
+        else
+            return ((AbstractConfigObject) interned).toConfig();
+    }
+
+    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
+    public static Config overlay(Config overrides, Config base) {
+        AbstractConfigObject o = ((SimpleConfig) overrides).root();
+        AbstractConfigObject b = ((SimpleConfig) base).root();
+        if (o.resolveStatus() != ResolveStatus.RESOLVED || b.resolveStatus() != ResolveStatus.RESOLVED)
+            throw new ConfigException.NotResolved(
+                    "need to Config#resolve() both configs before overlaying them, see the API docs for Config#resolve()");
+        return OverlayConfigObject.overlay(o, b).toConfig();
+    }
+
+    // big enough that a chunk header is noise, small enough to not matter
+    // as a buffer allocation per call
+    private static final int CODEC_CHUNK_SIZE = 64 * 1024;
+
+    private static ConfigException codecError(IOException e) {
+        return new ConfigException.IO(SimpleConfigOrigin.newSimple("encoded config"),
+                "failed to decode config: " + e.getMessage(), e);
+    }
+
+    // the reader checks what it can, but corrupt input that gets past it
+    // can still trip over something, which isn't the caller's bug either
+    private static ConfigException codecError(RuntimeException e) {
+        return new ConfigException.IO(SimpleConfigOrigin.newSimple("encoded config"),
+                "failed to decode config, it is corrupt: " + e, e);
+    }
+
+    private static void requireEncodable(Config config) {
+        if (!config.isResolved())
+            throw new ConfigException.NotResolved(
+                    "need to Config#resolve() before encoding a config, see the API docs for Config#resolve()");
+    }
+
+    private static Config decoded(Object value) throws IOException {
+        if (value instanceof Config)
+            return (Config) value;
+        else
+            throw new IOException("encoded value is not a config");
+    }
+
+    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
+    public static void encode(Config config, ByteBuffer buffer, boolean includeOrigins) {
+        requireEncodable(config);
+        try {
+            ByteBufferDataOutput out = new ByteBufferDataOutput(buffer);
+            SerializedConfigValue.writeCompact(out, config.root(), true /* wasConfig */,
+                    includeOrigins);
+            out.finish();
+        } catch (IOException e) {
+            throw new ConfigException.BugOrBroken("IOException writing to a buffer", e);
+        }
+    }
+
+    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
+    public static ByteBuffer encode(Config config, boolean includeOrigins) {
+        requireEncodable(config);
+        // encoded once into a growing buffer, then copied at its exact size
+        ByteBufferDataOutput out = new ByteBufferDataOutput(4096);
+        try {
+            SerializedConfigValue.writeCompact(out, config.root(), true /* wasConfig */,
+                    includeOrigins);
+        } catch (IOException e) {
+            throw new ConfigException.BugOrBroken("IOException writing to a buffer", e);
+        }
+        return out.toByteBuffer();
+    }
+
+    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
+    public static ByteBuffer encodeDelta(Config oldVersion, Config newVersion) {
+        requireEncodable(oldVersion);
+        requireEncodable(newVersion);
+        ByteBufferDataOutput out = new ByteBufferDataOutput(256);
+        try {
+            SerializedConfigValue.writeDelta(out, (AbstractConfigObject) oldVersion.root(),
+                    (AbstractConfigObject) newVersion.root());
+        } catch (IOException e) {
+            throw new ConfigException.BugOrBroken("IOException writing to a buffer", e);
+        }
+        return out.toByteBuffer();
+    }
+
+    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
+    public static Config applyDelta(Config base, ByteBuffer delta) {
+        if (!base.isResolved())
+            throw new ConfigException.NotResolved(
+                    "need to Config#resolve() before applying a delta to a config, see the API docs for Config#resolve()");
+        try {
+            AbstractConfigObject root = (AbstractConfigObject) base.root();
+            ByteBufferDataInput in = new ByteBufferDataInput(delta);
+            AbstractConfigObject result = SerializedConfigValue.readDelta(in, root);
+            in.finish();
+            return result == root ? base : result.toConfig();
+        } catch (IOException e) {
+            throw codecError(e);
+        } catch (ConfigException.Generic e) {
+            // base is not what the delta was made from
+            throw e;
+        } catch (RuntimeException e) {
+            throw codecError(e);
+        }
+    }
+
+    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
+    public static void encode(Config config, WritableByteChannel channel, boolean includeOrigins) {
+        requireEncodable(config);
+        try {
+            ByteBufferDataOutput out = new ByteBufferDataOutput(channel, CODEC_CHUNK_SIZE);
+            SerializedConfigValue.writeCompact(out, config.root(), true /* wasConfig */,
+                    includeOrigins);
+            out.finish();
+        } catch (IOException e) {
+            throw new ConfigException.IO(SimpleConfigOrigin.newSimple("encoded config"),
+                    "failed to encode config: " + e.getMessage(), e);
+        }
+    }
+
+    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
+    public static Config decode(ByteBuffer buffer) {
+        try {
+            ByteBufferDataInput in = new ByteBufferDataInput(buffer);
+            Config config = decoded(SerializedConfigValue.readCompact(in));
+            in.finish();
+            return config;
+        } catch (IOException e) {
+            throw codecError(e);
+        } catch (RuntimeException e) {
+            throw codecError(e);
+        }
+    }
+
+    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
+    public static Config decode(ReadableByteChannel channel) {
+        try {
+            ByteBufferDataInput in = new ByteBufferDataInput(channel, CODEC_CHUNK_SIZE);
+            Config config = decoded(SerializedConfigValue.readCompact(in));
+            in.finish();
+            return config;
+        } catch (IOException e) {
+            throw codecError(e);
+        } catch (RuntimeException e) {
+            throw codecError(e);
+        }
+    }
+
+    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
+    public static ConfigResolveProfiler newResolveProfiler() {
+        return new SimpleResolveProfiler();
+    }
+
     private static class DefaultIncluderHolder {
         static final ConfigIncluder defaultIncluder = new SimpleIncluder(null);
     }
@@ -306,24 +547,40 @@ public class ConfigImpl {
         }
     }
 
-    private static Properties getSystemProperties() {
+    // a HashMap is cheaper to copy and compare than Properties, for refreshing
+    private static Map<Object, Object> getSystemPropertiesSnapshot() {
         // Avoid ConcurrentModificationException due to parallel setting of system properties by copying properties
         final Properties systemProperties = System.getProperties();
-        final Properties systemPropertiesCopy = new Properties();
         synchronized (systemProperties) {
-            systemPropertiesCopy.putAll(systemProperties);
+            return new HashMap<Object, Object>(systemProperties);
         }
-        return systemPropertiesCopy;
     }
 
-    private static AbstractConfigObject loadSystemProperties() {
-        return (AbstractConfigObject) Parseable.newProperties(getSystemProperties(),
+    private static AbstractConfigObject loadSystemProperties(Map<Object, Object> snapshot) {
+        Properties properties = new Properties();
+        properties.putAll(snapshot);
+        return (AbstractConfigObject) Parseable.newProperties(properties,
                 ConfigParseOptions.defaults().setOriginDescription("system properties")).parse();
     }
 
     private static class SystemPropertiesHolder {
+        // what systemProperties was loaded from, for refreshSystemPropertiesConfig();
+        // both are only replaced while holding the class lock
+        static Map<Object, Object> snapshot = getSystemPropertiesSnapshot();
         // this isn't final due to the reloadSystemPropertiesConfig() hack below
-        static volatile AbstractConfigObject systemProperties = loadSystemProperties();
+        static volatile AbstractConfigObject systemProperties = loadSystemProperties(snapshot);
+        // how many times reloadSystemPropertiesConfig() was called, so the
+        // LoaderCache can tell a reload, which drops everything, from a
+        // refresh
+        static volatile int reloads = 0;
+    }
+
+    static int systemPropertiesReloads() {
+        try {
+            return SystemPropertiesHolder.reloads;
+        } catch (ExceptionInInitializerError e) {
+            throw ConfigImplUtil.extractInitializerError(e);
+        }
     }
 
     static AbstractConfigObject systemPropertiesAsConfigObject() {
@@ -343,27 +600,35 @@ public class ConfigImpl {
     public static void reloadSystemPropertiesConfig() {
         // ConfigFactory.invalidateCaches() relies on this having the side
         // effect that it drops all caches
-        SystemPropertiesHolder.systemProperties = loadSystemProperties();
+        Map<Object, Object> snapshot = getSystemPropertiesSnapshot();
+        synchronized (SystemPropertiesHolder.class) {
+            SystemPropertiesHolder.snapshot = snapshot;
+            SystemPropertiesHolder.systemProperties = loadSystemProperties(snapshot);
+            SystemPropertiesHolder.reloads += 1;
+        }
     }
 
-    private static AbstractConfigObject loadEnvVariables() {
-        Map<String, String> env = System.getenv();
-        Map<String, AbstractConfigValue> m = new HashMap<String, AbstractConfigValue>();
-        for (Map.Entry<String, String> entry : env.entrySet()) {
-            String key = entry.getKey();
-            m.put(key,
-                    new ConfigString(SimpleConfigOrigin.newSimple("env var " + key), entry
-                            .getValue()));
+    /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
+    public static boolean refreshSystemPropertiesConfig() {
+        // unlike reloading, this keeps the same object (and so the
+        // LoaderCache) when nothing changed, and otherwise only rebuilds the
+        // top-level keys whose properties changed
+        Map<Object, Object> snapshot = getSystemPropertiesSnapshot();
+        synchronized (SystemPropertiesHolder.class) {
+            AbstractConfigObject old = SystemPropertiesHolder.systemProperties;
+            AbstractConfigObject refreshed = PropertiesParser.patchProperties(old,
+                    SystemPropertiesHolder.snapshot, snapshot);
+            SystemPropertiesHolder.snapshot = snapshot;
+            SystemPropertiesHolder.systemProperties = refreshed;
+            return refreshed != old;
         }
-        return new SimpleConfigObject(SimpleConfigOrigin.newSimple("env variables"),
-                m, ResolveStatus.RESOLVED, false /* ignoresFallbacks */);
     }
 
     private static class EnvVariablesHolder {
-        static final AbstractConfigObject envVariables = loadEnvVariables();
+        static final EnvVariables envVariables = new EnvVariables(System.getenv());
     }
 
-    static AbstractConfigObject envVariablesAsConfigObject() {
+    static EnvVariables envVariables() {
         try {
             return EnvVariablesHolder.envVariables;
         } catch (ExceptionInInitializerError e) {
@@ -371,6 +636,10 @@ public class ConfigImpl {
         }
     }
 
+    static AbstractConfigObject envVariablesAsConfigObject() {
+        return envVariables().asObject();
+    }
+
     /** For use ONLY by library internals, DO NOT TOUCH not guaranteed ABI */
     public static Config envVariablesAsConfig() {
         return envVariablesAsConfigObject().toConfig();
@@ -381,10 +650,16 @@ public class ConfigImpl {
         return computeCachedConfig(loader, "defaultReference", new Callable<Config>() {
             @Override
             public Config call() {
-                Config unresolvedResources = Parseable
-                        .newResources("reference.conf",
-                                ConfigParseOptions.defaults().setClassLoader(loader))
-                        .parse().toConfig();
+                Config unresolvedResources = computeCachedParse(loader, "reference.conf",
+                        new Callable<Config>() {
+                            @Override
+                            public Config call() {
+                                return Parseable
+                                        .newResources("reference.conf",
+                                                ConfigParseOptions.defaults().setClassLoader(loader))
+                                        .parse().toConfig();
+                            }
+                        });
                 return systemPropertiesAsConfig().withFallback(unresolvedResources).resolve();
             }
         });
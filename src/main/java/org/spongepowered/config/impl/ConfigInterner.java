@@ -0,0 +1,267 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config.impl;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash-consing of config trees, see
+ * {@link org.spongepowered.config.ConfigFactory#intern}. Trees are interned
+ * bottom-up, so by the time we look up an object or list its children are
+ * already canonical and can be compared by identity; that keeps both the
+ * hash and the comparison shallow. Only resolved values go in the table,
+ * and two values are only the same if their origins (including comments)
+ * are too, so interning never changes what a config says about itself.
+ */
+final class ConfigInterner {
+
+    private ConfigInterner() {
+    }
+
+    // A weak, concurrent set: entries go away once nothing else uses the
+    // interned instance.
+    private static abstract class Table<T> {
+        final private ConcurrentHashMap<Object, Ref> map = new ConcurrentHashMap<Object, Ref>();
+        final private ReferenceQueue<T> queue = new ReferenceQueue<T>();
+
+        abstract int hash(T t);
+
+        abstract boolean same(T a, T b);
+
+        private final class Ref extends WeakReference<T> {
+            final int hash;
+
+            Ref(T referent, int hash) {
+                super(referent, queue);
+                this.hash = hash;
+            }
+
+            @Override
+            public int hashCode() {
+                return hash;
+            }
+
+            @Override
+            public boolean equals(Object other) {
+                if (this == other)
+                    return true;
+                T mine = get();
+                return mine != null && matches(other, hash, mine);
+            }
+        }
+
+        // used for lookups, so we only make a weak reference when inserting
+        private final class Probe {
+            final T value;
+            final int hash;
+
+            Probe(T value, int hash) {
+                this.value = value;
+                this.hash = hash;
+            }
+
+            @Override
+            public int hashCode() {
+                return hash;
+            }
+
+            @Override
+            public boolean equals(Object other) {
+                return matches(other, hash, value);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private boolean matches(Object other, int hash, T value) {
+            T theirs;
+            int theirHash;
+            if (other instanceof Table.Ref) {
+                theirs = ((Ref) other).get();
+                theirHash = ((Ref) other).hash;
+            } else if (other instanceof Table.Probe) {
+                theirs = ((Probe) other).value;
+                theirHash = ((Probe) other).hash;
+            } else {
+                return false;
+            }
+            return theirs != null && theirHash == hash && (theirs == value || same(value, theirs));
+        }
+
+        private void expunge() {
+            Object cleared;
+            while ((cleared = queue.poll()) != null) {
+                map.remove(cleared);
+            }
+        }
+
+        T intern(T t) {
+            expunge();
+            int hash = hash(t);
+            Probe probe = new Probe(t, hash);
+            for (;;) {
+                Ref existing = map.get(probe);
+                if (existing == null) {
+                    Ref ref = new Ref(t, hash);
+                    existing = map.putIfAbsent(ref, ref);
+                    if (existing == null)
+                        return t;
+                }
+                T canonical = existing.get();
+                if (canonical != null)
+                    return canonical;
+                // collected since we found it, try again
+                map.remove(existing, existing);
+            }
+        }
+    }
+
+    final private static Table<String> strings = new Table<String>() {
+        @Override
+        int hash(String s) {
+            return s.hashCode();
+        }
+
+        @Override
+        boolean same(String a, String b) {
+            return a.equals(b);
+        }
+    };
+
+    final private static Table<AbstractConfigValue> values = new Table<AbstractConfigValue>() {
+        @Override
+        int hash(AbstractConfigValue v) {
+            int h = v.origin().hashCode();
+            if (v instanceof SimpleConfigObject) {
+                SimpleConfigObject o = (SimpleConfigObject) v;
+                for (String key : o.keySet()) {
+                    h += key.hashCode() ^ System.identityHashCode(o.get(key));
+                }
+                if (o.ignoresFallbacks())
+                    h += 1;
+            } else if (v instanceof SimpleConfigList) {
+                SimpleConfigList l = (SimpleConfigList) v;
+                if (l.numbers() != null)
+                    return 41 * h + l.numbers().primitiveHash();
+                for (int i = 0; i < l.size(); ++i) {
+                    h = 41 * h + System.identityHashCode(l.get(i));
+                }
+            } else {
+                h = 41 * h + v.hashCode();
+            }
+            return h;
+        }
+
+        @Override
+        boolean same(AbstractConfigValue a, AbstractConfigValue b) {
+            if (a.getClass() != b.getClass() || !a.origin().equals(b.origin())
+                    || !a.origin().comments().equals(b.origin().comments()))
+                return false;
+
+            if (a instanceof SimpleConfigObject) {
+                SimpleConfigObject oa = (SimpleConfigObject) a;
+                SimpleConfigObject ob = (SimpleConfigObject) b;
+                if (oa.size() != ob.size() || oa.ignoresFallbacks() != ob.ignoresFallbacks())
+                    return false;
+                for (String key : oa.keySet()) {
+                    if (oa.get(key) != ob.get(key))
+                        return false;
+                }
+                return true;
+            } else if (a instanceof SimpleConfigList) {
+                SimpleConfigList la = (SimpleConfigList) a;
+                SimpleConfigList lb = (SimpleConfigList) b;
+                if (la.numbers() != null || lb.numbers() != null)
+                    return la.numbers() != null && lb.numbers() != null
+                            && la.numbers().sameAs(lb.numbers());
+                if (la.size() != lb.size())
+                    return false;
+                for (int i = 0; i < la.size(); ++i) {
+                    if (la.get(i) != lb.get(i))
+                        return false;
+                }
+                return true;
+            } else {
+                // numbers remember how they were written, e.g. 1.0 vs 1
+                return a.equals(b)
+                        && ConfigImplUtil.equalsHandlingNull(a.transformToString(),
+                                b.transformToString());
+            }
+        }
+    };
+
+    static AbstractConfigValue intern(AbstractConfigValue v) {
+        if (v instanceof SimpleConfigObject) {
+            SimpleConfigObject o = (SimpleConfigObject) v;
+            Map<String, AbstractConfigValue> children = new HashMap<String, AbstractConfigValue>();
+            boolean changed = false;
+            for (String key : o.keySet()) {
+                AbstractConfigValue child = o.get(key);
+                AbstractConfigValue canonicalChild = intern(child);
+                String canonicalKey = strings.intern(key);
+                if (canonicalChild != child || canonicalKey != key)
+                    changed = true;
+                children.put(canonicalKey, canonicalChild);
+            }
+            if (changed)
+                o = new SimpleConfigObject(o.origin(), children, o.resolveStatus(),
+                        o.ignoresFallbacks());
+            if (o.resolveStatus() == ResolveStatus.RESOLVED)
+                return values.intern(o);
+            else
+                return o;
+        } else if (v instanceof SimpleConfigList && ((SimpleConfigList) v).numbers() != null) {
+            // elements of a compact list are made on demand, so share it whole
+            return values.intern(v);
+        } else if (v instanceof SimpleConfigList) {
+            SimpleConfigList l = (SimpleConfigList) v;
+            List<AbstractConfigValue> children = new ArrayList<AbstractConfigValue>(l.size());
+            boolean changed = false;
+            for (int i = 0; i < l.size(); ++i) {
+                AbstractConfigValue child = l.get(i);
+                AbstractConfigValue canonicalChild = intern(child);
+                if (canonicalChild != child)
+                    changed = true;
+                children.add(canonicalChild);
+            }
+            if (changed)
+                l = new SimpleConfigList(l.origin(), children, l.resolveStatus());
+            if (l.resolveStatus() == ResolveStatus.RESOLVED)
+                return values.intern(l);
+            else
+                return l;
+        } else if (v instanceof ConfigString) {
+            String s = ((ConfigString) v).unwrapped();
+            String canonical = strings.intern(s);
+            if (canonical != s)
+                v = new ConfigString(v.origin(), canonical);
+            return values.intern(v);
+        } else if (v.resolveStatus() == ResolveStatus.RESOLVED) {
+            return values.intern(v);
+        } else {
+            // substitutions, concatenations, delayed merges
+            return v;
+        }
+    }
+}
@@ -57,7 +57,7 @@ final class ConfigNull extends AbstractConfigValue implements Serializable {
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    protected void render(RenderBuffer sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         sb.append("null");
     }
 
@@ -33,6 +33,9 @@ abstract class ConfigNumber extends AbstractConfigValue implements Serializable
     // config file. It's purely cosmetic; equals/hashCode don't consider this
     // for example.
     final protected String originalText;
+    // made on first use, since numbers are often read as durations or sizes
+    // which go through the string form
+    private transient ConfigString asString;
 
     protected ConfigNumber(ConfigOrigin origin, String originalText) {
         super(origin);
@@ -42,11 +45,31 @@ abstract class ConfigNumber extends AbstractConfigValue implements Serializable
     @Override
     public abstract Number unwrapped();
 
+    ConfigString asConfigString() {
+        ConfigString s = asString;
+        if (s == null) {
+            s = new ConfigString(origin(), transformToString());
+            asString = s;
+        }
+        return s;
+    }
+
     @Override
     String transformToString() {
         return originalText;
     }
 
+    // true if the number was written the way transformToString() would
+    // print it without the original text
+    boolean originalTextIsDefault() {
+        if (originalText == null)
+            return true;
+        else if (this instanceof ConfigDouble)
+            return originalText.equals(Double.toString(doubleValue()));
+        else
+            return originalText.equals(Long.toString(longValue()));
+    }
+
     int intValueRangeChecked(String path) {
         long l = longValue();
         if (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) {
@@ -87,6 +87,8 @@ final class ConfigReference extends AbstractConfigValue implements Unmergeable {
         context.source().replace(this, ResolveReplacer.cycleResolveReplacer);
         try {
             AbstractConfigValue v;
+            if (context.profiling() != null)
+                context.profiling().startLookup(this);
             try {
                 v = context.source().lookupSubst(context, expr, prefixLength);
             } catch (NotPossibleToResolve e) {
@@ -96,6 +98,9 @@ final class ConfigReference extends AbstractConfigValue implements Unmergeable {
                     throw new ConfigException.UnresolvedSubstitution(origin(), expr
                             + " was part of a cycle of substitutions involving " + e.traceString(),
                             e);
+            } finally {
+                if (context.profiling() != null)
+                    context.profiling().endLookup();
             }
 
             if (v == null && !expr.optional()) {
@@ -149,11 +154,15 @@ final class ConfigReference extends AbstractConfigValue implements Unmergeable {
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    protected void render(RenderBuffer sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         sb.append(expr.toString());
     }
 
     SubstitutionExpression expression() {
         return expr;
     }
+
+    int prefixLength() {
+        return prefixLength;
+    }
 }
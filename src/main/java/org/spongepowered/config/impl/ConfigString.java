@@ -30,12 +30,53 @@ final class ConfigString extends AbstractConfigValue implements Serializable {
     private static final long serialVersionUID = 2L;
 
     final private String value;
+    // what this string was last converted to: a number, boolean or null
+    // from DefaultTransformer, or a parsed duration or size. Hot code reads
+    // the same settings over and over, and this way only the first read
+    // parses. Benign race, every thread computes an equal value.
+    private transient Object coerced;
 
     ConfigString(ConfigOrigin origin, String value) {
         super(origin);
         this.value = value;
     }
 
+    private static final class Quantity {
+        final boolean isBytes;
+        final Long value;
+
+        Quantity(boolean isBytes, Long value) {
+            this.isBytes = isBytes;
+            this.value = value;
+        }
+    }
+
+    // null if we haven't been converted to this type
+    AbstractConfigValue transformedTo(ConfigValueType requested) {
+        Object c = coerced;
+        if (c instanceof AbstractConfigValue && ((AbstractConfigValue) c).valueType() == requested)
+            return (AbstractConfigValue) c;
+        else
+            return null;
+    }
+
+    void rememberTransformed(AbstractConfigValue transformed) {
+        coerced = transformed;
+    }
+
+    // nanoseconds or bytes, null if not parsed as that yet
+    Long parsedQuantity(boolean isBytes) {
+        Object c = coerced;
+        if (c instanceof Quantity && ((Quantity) c).isBytes == isBytes)
+            return ((Quantity) c).value;
+        else
+            return null;
+    }
+
+    void rememberQuantity(boolean isBytes, Long value) {
+        coerced = new Quantity(isBytes, value);
+    }
+
     @Override
     public ConfigValueType valueType() {
         return ConfigValueType.STRING;
@@ -52,7 +93,7 @@ final class ConfigString extends AbstractConfigValue implements Serializable {
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    protected void render(RenderBuffer sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         String rendered;
         if (options.getJson())
             rendered = ConfigImplUtil.renderJsonString(value);
@@ -33,6 +33,26 @@ final class DefaultTransformer {
 
     static AbstractConfigValue transform(AbstractConfigValue value,
             ConfigValueType requested) {
+        // strings and numbers keep their converted forms, so repeated typed
+        // reads of the same value don't parse or allocate
+        if (value instanceof ConfigString && requested != ConfigValueType.STRING) {
+            ConfigString s = (ConfigString) value;
+            AbstractConfigValue transformed = s.transformedTo(requested);
+            if (transformed == null) {
+                transformed = transformUncached(value, requested);
+                if (transformed != value)
+                    s.rememberTransformed(transformed);
+            }
+            return transformed;
+        } else if (value instanceof ConfigNumber && requested == ConfigValueType.STRING) {
+            return ((ConfigNumber) value).asConfigString();
+        } else {
+            return transformUncached(value, requested);
+        }
+    }
+
+    private static AbstractConfigValue transformUncached(AbstractConfigValue value,
+            ConfigValueType requested) {
         if (value.valueType() == ConfigValueType.STRING) {
             String s = (String) value.unwrapped();
             switch (requested) {
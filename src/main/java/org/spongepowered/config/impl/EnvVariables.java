@@ -0,0 +1,134 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.spongepowered.config.ConfigEnvVariableMapping;
+import org.spongepowered.config.ConfigException;
+
+/**
+ * A snapshot of the environment which only creates config values for the
+ * variables that are actually looked up. Most substitutions that fall back to
+ * the environment are just missing, and most processes have a lot of
+ * variables, so wrapping all of them up front is wasted work.
+ */
+final class EnvVariables {
+    final private Map<String, String> env;
+    // ConfigString values, created the first time a variable is asked for
+    final private ConcurrentMap<String, AbstractConfigValue> values;
+    // the index from path to variable name for the last mapping used; only
+    // one is kept, so a caller creating a mapping per resolve costs a rebuild
+    // each time rather than an index per mapping forever
+    private volatile MappedIndex lastIndex;
+    // only built if someone wants the whole environment as an object
+    private volatile AbstractConfigObject object;
+
+    EnvVariables(Map<String, String> env) {
+        this.env = env;
+        this.values = new ConcurrentHashMap<String, AbstractConfigValue>();
+        this.lastIndex = null;
+        this.object = null;
+    }
+
+    private AbstractConfigValue value(String name) {
+        AbstractConfigValue v = values.get(name);
+        if (v == null) {
+            v = new ConfigString(SimpleConfigOrigin.newSimple("env var " + name), env.get(name));
+            AbstractConfigValue old = values.putIfAbsent(name, v);
+            if (old != null)
+                v = old;
+        }
+        return v;
+    }
+
+    private static final class MappedIndex {
+        final ConfigEnvVariableMapping mapping;
+        final Map<Path, String> index;
+
+        MappedIndex(ConfigEnvVariableMapping mapping, Map<Path, String> index) {
+            this.mapping = mapping;
+            this.index = index;
+        }
+    }
+
+    private Map<Path, String> index(ConfigEnvVariableMapping mapping) {
+        MappedIndex last = lastIndex;
+        if (last != null && last.mapping == mapping)
+            return last.index;
+
+        Map<Path, String> built = new HashMap<Path, String>();
+        for (String name : env.keySet()) {
+            String expression = mapping.pathExpression(name);
+            if (expression == null)
+                continue;
+            Path path;
+            try {
+                path = Path.newPath(expression);
+            } catch (ConfigException.BadPath e) {
+                continue;
+            }
+            // if two variables map to the same path, don't guess
+            if (built.containsKey(path))
+                built.put(path, null);
+            else
+                built.put(path, name);
+        }
+        Map<Path, String> index = Collections.unmodifiableMap(built);
+        lastIndex = new MappedIndex(mapping, index);
+        return index;
+    }
+
+    /**
+     * Finds the variable for a substitution path, first by its exact name and
+     * then through the mapping (which may be null).
+     *
+     * @return the value or null if there's no such variable
+     */
+    AbstractConfigValue lookup(Path path, ConfigEnvVariableMapping mapping) {
+        if (path.remainder() == null && env.containsKey(path.first()))
+            return value(path.first());
+
+        if (mapping != null) {
+            String name = index(mapping).get(path);
+            if (name != null)
+                return value(name);
+        }
+
+        return null;
+    }
+
+    AbstractConfigObject asObject() {
+        AbstractConfigObject o = object;
+        if (o == null) {
+            Map<String, AbstractConfigValue> m = new HashMap<String, AbstractConfigValue>();
+            for (String name : env.keySet()) {
+                m.put(name, value(name));
+            }
+            o = new SimpleConfigObject(SimpleConfigOrigin.newSimple("env variables"), m,
+                    ResolveStatus.RESOLVED, false /* ignoresFallbacks */);
+            object = o;
+        }
+        return o;
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.spongepowered.config.ConfigException;
+import org.spongepowered.config.ConfigRenderOptions;
+
+/**
+ * Renders a resolved value as JSON straight to UTF-8 bytes, for the JSON
+ * options without comments (concise or formatted), producing exactly the
+ * encoding of what render(ConfigRenderOptions) would return. Strings are
+ * escaped and encoded in one pass, integers are written as digits without
+ * making a String, and the quoted bytes of each key are cached for the
+ * render, since the objects in a large config tend to repeat their keys.
+ * Values it has no byte path for are rendered as chars and encoded.
+ */
+final class JsonBytesRenderer {
+    private static final int BUFFER_SIZE = 8192;
+    // the most bytes one char can need: "\\u0000" is six
+    private static final int MAX_CHAR_BYTES = 6;
+    // keys that repeat show up early, and a large object's own keys are
+    // each used once, so stop caching after this many
+    private static final int MAX_CACHED_KEYS = 1024;
+
+    private final OutputStream out;
+    private final ByteBuffer buffer;
+    private final ConfigRenderOptions options;
+    private final boolean formatted;
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+    private int count = 0;
+    private final Map<String, byte[]> keys = new HashMap<String, byte[]>();
+    private final byte[] digits = new byte[20];
+
+    private JsonBytesRenderer(OutputStream out, ByteBuffer buffer, ConfigRenderOptions options) {
+        this.out = out;
+        this.buffer = buffer;
+        this.options = options;
+        this.formatted = options.getFormatted();
+    }
+
+    static boolean canRender(AbstractConfigValue value, ConfigRenderOptions options) {
+        return options.getJson() && !options.getComments() && !options.getOriginComments()
+                && value.resolveStatus() == ResolveStatus.RESOLVED;
+    }
+
+    static void render(AbstractConfigValue value, ConfigRenderOptions options, OutputStream out)
+            throws IOException {
+        JsonBytesRenderer renderer = new JsonBytesRenderer(out, null, options);
+        renderer.value(value, 0, true /* atRoot */);
+        renderer.flush();
+    }
+
+    // throws BufferOverflowException if the rendering doesn't fit
+    static void render(AbstractConfigValue value, ConfigRenderOptions options, ByteBuffer buffer) {
+        JsonBytesRenderer renderer = new JsonBytesRenderer(null, buffer, options);
+        try {
+            renderer.value(value, 0, true /* atRoot */);
+            renderer.flush();
+        } catch (IOException e) {
+            throw new ConfigException.BugOrBroken("IOException writing to a buffer", e);
+        }
+    }
+
+    private void flush() throws IOException {
+        if (out != null)
+            out.write(bytes, 0, count);
+        else
+            buffer.put(bytes, 0, count);
+        count = 0;
+    }
+
+    private void ensure(int n) throws IOException {
+        if (count + n > bytes.length)
+            flush();
+    }
+
+    private void ascii(char c) throws IOException {
+        ensure(1);
+        bytes[count++] = (byte) c;
+    }
+
+    private void ascii(String s) throws IOException {
+        int n = s.length();
+        for (int i = 0; i < n; ++i) {
+            if (count == bytes.length)
+                flush();
+            bytes[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void indent(int indent) throws IOException {
+        if (formatted) {
+            for (int i = 0; i < indent; ++i)
+                ascii("    ");
+        }
+    }
+
+    private void value(AbstractConfigValue v, int indent, boolean atRoot) throws IOException {
+        if (v instanceof ConfigString) {
+            string(((ConfigString) v).unwrapped());
+        } else if (v instanceof ConfigInt || v instanceof ConfigLong) {
+            integer(((ConfigNumber) v).longValue());
+        } else if (v instanceof ConfigDouble) {
+            ascii(Double.toString(((ConfigDouble) v).doubleValue()));
+        } else if (v instanceof ConfigBoolean) {
+            ascii(((ConfigBoolean) v).unwrapped() ? "true" : "false");
+        } else if (v instanceof ConfigNull) {
+            ascii("null");
+        } else if (v instanceof SimpleConfigList) {
+            list((SimpleConfigList) v, indent, atRoot);
+        } else if (v instanceof AbstractConfigObject) {
+            object((AbstractConfigObject) v, indent, atRoot);
+        } else {
+            RenderBuffer sb = new RenderBuffer();
+            v.render(sb, indent, atRoot, options);
+            chars(sb.toString());
+        }
+    }
+
+    private static Iterable<String> sortedKeys(AbstractConfigObject o) {
+        if (o instanceof SimpleConfigObject)
+            return ((SimpleConfigObject) o).sortedKeys();
+        String[] sorted = o.keySet().toArray(new String[o.size()]);
+        Arrays.sort(sorted);
+        return Arrays.asList(sorted);
+    }
+
+    // the same layout as SimpleConfigObject.render() with JSON options
+    private void object(AbstractConfigObject o, int indent, boolean atRoot) throws IOException {
+        if (o.isEmpty()) {
+            ascii("{}");
+        } else {
+            ascii('{');
+            if (formatted)
+                ascii('\n');
+            boolean first = true;
+            for (String k : sortedKeys(o)) {
+                if (first) {
+                    first = false;
+                } else {
+                    ascii(formatted ? ",\n" : ",");
+                }
+                indent(indent + 1);
+                key(k);
+                ascii(formatted ? " : " : ":");
+                value(o.get(k), indent + 1, false /* atRoot */);
+            }
+            if (formatted) {
+                ascii('\n');
+                indent(indent);
+            }
+            ascii('}');
+        }
+        if (atRoot && formatted)
+            ascii('\n');
+    }
+
+    // the same layout as SimpleConfigList.render()
+    private void list(SimpleConfigList list, int indent, boolean atRoot) throws IOException {
+        if (list.isEmpty()) {
+            ascii("[]");
+            return;
+        }
+        ascii('[');
+        if (formatted)
+            ascii('\n');
+        PrimitiveNumberList numbers = list.numbers();
+        int n = list.size();
+        for (int i = 0; i < n; ++i) {
+            if (i > 0)
+                ascii(formatted ? ",\n" : ",");
+            indent(indent + 1);
+            if (numbers == null)
+                value(list.get(i), indent + 1, atRoot);
+            else if (numbers.integral())
+                integer(numbers.longAt(i));
+            else
+                ascii(Double.toString(numbers.doubleAt(i)));
+        }
+        if (formatted) {
+            ascii('\n');
+            indent(indent);
+        }
+        ascii(']');
+    }
+
+    private void key(String k) throws IOException {
+        byte[] quoted = keys.get(k);
+        if (quoted != null) {
+            ensure(quoted.length);
+            System.arraycopy(quoted, 0, bytes, count, quoted.length);
+            count += quoted.length;
+            return;
+        }
+        int most = k.length() * MAX_CHAR_BYTES + 2;
+        if (most > bytes.length || keys.size() >= MAX_CACHED_KEYS) {
+            // too long to render without flushing, or the cache is full
+            string(k);
+            return;
+        }
+        // render it without flushing and keep a copy
+        ensure(most);
+        int start = count;
+        string(k);
+        keys.put(k, Arrays.copyOfRange(bytes, start, count));
+    }
+
+    private void integer(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            ascii(Long.toString(value));
+            return;
+        }
+        ensure(digits.length + 1);
+        if (value < 0) {
+            bytes[count++] = '-';
+            value = -value;
+        }
+        int i = digits.length;
+        do {
+            digits[--i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        int n = digits.length - i;
+        System.arraycopy(digits, i, bytes, count, n);
+        count += n;
+    }
+
+    // the same escapes as ConfigImplUtil.renderJsonString(), encoded as UTF-8
+    private void string(String s) throws IOException {
+        ascii('"');
+        int n = s.length();
+        for (int i = 0; i < n; ++i) {
+            if (count + MAX_CHAR_BYTES > bytes.length)
+                flush();
+            char c = s.charAt(i);
+            if (c >= 0x20 && c < 0x7f && c != '"' && c != '\\') {
+                bytes[count++] = (byte) c;
+                continue;
+            }
+            switch (c) {
+            case '"':
+                escape('"');
+                break;
+            case '\\':
+                escape('\\');
+                break;
+            case '\n':
+                escape('n');
+                break;
+            case '\b':
+                escape('b');
+                break;
+            case '\f':
+                escape('f');
+                break;
+            case '\r':
+                escape('r');
+                break;
+            case '\t':
+                escape('t');
+                break;
+            default:
+                if (Character.isISOControl(c)) {
+                    bytes[count++] = '\\';
+                    bytes[count++] = 'u';
+                    for (int shift = 12; shift >= 0; shift -= 4)
+                        bytes[count++] = (byte) Character.forDigit((c >> shift) & 0xf, 16);
+                } else {
+                    i = utf8(s, i);
+                }
+            }
+        }
+        ascii('"');
+    }
+
+    private void escape(char c) {
+        bytes[count++] = '\\';
+        bytes[count++] = (byte) c;
+    }
+
+    // encodes the char at i, which is not ASCII, and returns the index of
+    // the last char used; unpaired surrogates become '?' as in getBytes()
+    private int utf8(String s, int i) {
+        char c = s.charAt(i);
+        if (c < 0x800) {
+            bytes[count++] = (byte) (0xc0 | (c >> 6));
+            bytes[count++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(i + 1));
+            bytes[count++] = (byte) (0xf0 | (cp >> 18));
+            bytes[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+            bytes[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+            bytes[count++] = (byte) (0x80 | (cp & 0x3f));
+            return i + 1;
+        } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+            bytes[count++] = '?';
+        } else {
+            bytes[count++] = (byte) (0xe0 | (c >> 12));
+            bytes[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            bytes[count++] = (byte) (0x80 | (c & 0x3f));
+        }
+        return i;
+    }
+
+    // chars from a value without a byte path, encoded as UTF-8
+    private void chars(String s) throws IOException {
+        int n = s.length();
+        for (int i = 0; i < n; ++i) {
+            if (count + MAX_CHAR_BYTES > bytes.length)
+                flush();
+            char c = s.charAt(i);
+            if (c < 0x80)
+                bytes[count++] = (byte) c;
+            else
+                i = utf8(s, i);
+        }
+    }
+}
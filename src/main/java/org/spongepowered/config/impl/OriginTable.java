@@ -0,0 +1,82 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config.impl;
+
+import org.spongepowered.config.ConfigOrigin;
+import org.spongepowered.config.ConfigOriginTracking;
+
+/**
+ * The origins for one parse, which differ only by line number. The tokenizer
+ * and parser used to call {@link SimpleConfigOrigin#setLineNumber(int)} for
+ * every line, token and object, so a large file had several origin objects
+ * per line; with a table, every token and value on a line shares one origin,
+ * created the first time the line asks for it. Unless tracking is
+ * {@link ConfigOriginTracking#FULL}, there are no line origins at all and
+ * everything gets the base origin. Like the rest of a parse, not thread-safe.
+ */
+final class OriginTable {
+    final private SimpleConfigOrigin base;
+    final private ConfigOriginTracking tracking;
+    // indexed by line number, which starts at 1; null unless tracking lines
+    private SimpleConfigOrigin[] lines;
+
+    OriginTable(ConfigOrigin base) {
+        this(base, ConfigOriginTracking.FULL);
+    }
+
+    OriginTable(ConfigOrigin base, ConfigOriginTracking tracking) {
+        if (tracking == ConfigOriginTracking.NONE)
+            this.base = SimpleConfigOrigin.newSimple(base.description());
+        else
+            this.base = (SimpleConfigOrigin) base;
+        this.tracking = tracking;
+        if (tracking == ConfigOriginTracking.FULL)
+            this.lines = new SimpleConfigOrigin[64];
+        else
+            this.lines = null;
+    }
+
+    SimpleConfigOrigin base() {
+        return base;
+    }
+
+    boolean keepsComments() {
+        return tracking == ConfigOriginTracking.FULL;
+    }
+
+    SimpleConfigOrigin lineOrigin(int lineNumber) {
+        if (lines == null)
+            return base;
+        else if (lineNumber < 0)
+            return base.setLineNumber(lineNumber);
+
+        if (lineNumber >= lines.length) {
+            SimpleConfigOrigin[] grown = new SimpleConfigOrigin[Math.max(lines.length * 2,
+                    lineNumber + 1)];
+            System.arraycopy(lines, 0, grown, 0, lines.length);
+            lines = grown;
+        }
+        SimpleConfigOrigin origin = lines[lineNumber];
+        if (origin == null) {
+            origin = base.setLineNumber(lineNumber);
+            lines[lineNumber] = origin;
+        }
+        return origin;
+    }
+}
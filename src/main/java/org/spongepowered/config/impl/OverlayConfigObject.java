@@ -0,0 +1,385 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config.impl;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.spongepowered.config.ConfigMergeable;
+import org.spongepowered.config.ConfigObject;
+import org.spongepowered.config.ConfigOrigin;
+import org.spongepowered.config.ConfigRenderOptions;
+import org.spongepowered.config.ConfigValue;
+
+/**
+ * A resolved object equal to overrides.withFallback(base), but which keeps
+ * both halves instead of copying the base. Lookups by key check the
+ * overrides and then the base; child objects present in both are overlaid
+ * too, once, when the overlay is made. So a tenant config built on a shared
+ * base costs about as much as its overrides. Key sets, entries, values,
+ * equality and unwrapping are views over the two halves. Rendering and
+ * anything that makes a new object (further merges, withValue() and so on)
+ * work on the merged object, which is built for the call and not kept.
+ */
+final class OverlayConfigObject extends AbstractConfigObject implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    final private AbstractConfigObject overrides;
+    final private AbstractConfigObject base;
+    // the overlays of keys that are objects in both halves
+    final private Map<String, AbstractConfigObject> overlaid;
+    // computed on first use since we're immutable; 0 means not yet
+    private transient int size;
+    private transient int hashCode;
+
+    private OverlayConfigObject(AbstractConfigObject overrides, AbstractConfigObject base) {
+        super(mergeOrigins(overrides, base));
+        this.overrides = overrides;
+        this.base = base;
+        Map<String, AbstractConfigObject> children = null;
+        for (String key : overrides.keySet()) {
+            AbstractConfigValue o = overrides.get(key);
+            AbstractConfigValue b = o instanceof AbstractConfigObject ? base.get(key) : null;
+            if (b instanceof AbstractConfigObject) {
+                if (children == null)
+                    children = new HashMap<String, AbstractConfigObject>();
+                children.put(key, overlay((AbstractConfigObject) o, (AbstractConfigObject) b));
+            }
+        }
+        this.overlaid = children == null ? Collections.<String, AbstractConfigObject> emptyMap() : children;
+    }
+
+    // both objects must be resolved
+    static AbstractConfigObject overlay(AbstractConfigObject overrides, AbstractConfigObject base) {
+        if (overrides.ignoresFallbacks())
+            return overrides;
+        else
+            return new OverlayConfigObject(overrides, base);
+    }
+
+    // a full copy, so it isn't kept
+    private AbstractConfigObject merged() {
+        return overrides.withFallback(base);
+    }
+
+    @Override
+    public AbstractConfigValue get(Object key) {
+        AbstractConfigObject child = overlaid.get(key);
+        if (child != null)
+            return child;
+        AbstractConfigValue o = overrides.get(key);
+        return o != null ? o : base.get(key);
+    }
+
+    @Override
+    protected AbstractConfigValue attemptPeekWithPartialResolve(String key) {
+        return get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return overrides.containsKey(key) || base.containsKey(key);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return overrides.isEmpty() && base.isEmpty();
+    }
+
+    @Override
+    ResolveStatus resolveStatus() {
+        return ResolveStatus.RESOLVED;
+    }
+
+    @Override
+    protected boolean ignoresFallbacks() {
+        return false;
+    }
+
+    @Override
+    public AbstractConfigObject toFallbackValue() {
+        return merged();
+    }
+
+    @Override
+    public AbstractConfigObject withFallback(ConfigMergeable mergeable) {
+        return merged().withFallback(mergeable);
+    }
+
+    @Override
+    protected AbstractConfigValue withFallbacksIgnored() {
+        return merged().withFallbacksIgnored();
+    }
+
+    @Override
+    protected AbstractConfigObject mergedWithObject(AbstractConfigObject fallback) {
+        return merged().mergedWithObject(fallback);
+    }
+
+    @Override
+    AbstractConfigObject resolveSubstitutions(ResolveContext context) {
+        return this;
+    }
+
+    @Override
+    AbstractConfigObject relativized(Path prefix) {
+        return merged().relativized(prefix);
+    }
+
+    @Override
+    protected AbstractConfigObject newCopy(ResolveStatus status, ConfigOrigin origin) {
+        return merged().newCopy(status, origin);
+    }
+
+    @Override
+    public AbstractConfigObject withOnlyKey(String key) {
+        return merged().withOnlyKey(key);
+    }
+
+    @Override
+    public AbstractConfigObject withoutKey(String key) {
+        return merged().withoutKey(key);
+    }
+
+    @Override
+    public AbstractConfigObject withValue(String key, ConfigValue value) {
+        return merged().withValue(key, value);
+    }
+
+    @Override
+    protected AbstractConfigObject withOnlyPathOrNull(Path path) {
+        return merged().withOnlyPathOrNull(path);
+    }
+
+    @Override
+    AbstractConfigObject withOnlyPath(Path path) {
+        return merged().withOnlyPath(path);
+    }
+
+    @Override
+    AbstractConfigObject withoutPath(Path path) {
+        return merged().withoutPath(path);
+    }
+
+    @Override
+    AbstractConfigObject withValue(Path path, ConfigValue value) {
+        return merged().withValue(path, value);
+    }
+
+    @Override
+    public Map<String, Object> unwrapped() {
+        Map<String, Object> m = new HashMap<String, Object>();
+        for (String key : keySet()) {
+            m.put(key, get(key).unwrapped());
+        }
+        return m;
+    }
+
+    // the overrides' keys, then the base's that aren't overridden
+    private final class KeyIterator implements Iterator<String> {
+        private Iterator<String> keys = overrides.keySet().iterator();
+        private boolean inBase = false;
+        private String next = advance();
+
+        private String advance() {
+            while (true) {
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    if (!inBase || !overrides.containsKey(key))
+                        return key;
+                }
+                if (inBase)
+                    return null;
+                keys = base.keySet().iterator();
+                inBase = true;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (next == null)
+                throw new NoSuchElementException();
+            String key = next;
+            next = advance();
+            return key;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("config objects are immutable");
+        }
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new KeyIterator();
+            }
+
+            @Override
+            public int size() {
+                return OverlayConfigObject.this.size();
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+        };
+    }
+
+    @Override
+    public boolean containsValue(Object v) {
+        return values().contains(v);
+    }
+
+    @Override
+    public Set<Map.Entry<String, ConfigValue>> entrySet() {
+        return new AbstractSet<Map.Entry<String, ConfigValue>>() {
+            @Override
+            public Iterator<Map.Entry<String, ConfigValue>> iterator() {
+                final Iterator<String> keys = new KeyIterator();
+                return new Iterator<Map.Entry<String, ConfigValue>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, ConfigValue> next() {
+                        String key = keys.next();
+                        return new AbstractMap.SimpleImmutableEntry<String, ConfigValue>(key, get(key));
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException("config objects are immutable");
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return OverlayConfigObject.this.size();
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        // benign race, like hashCode()
+        int n = size;
+        if (n == 0) {
+            n = overrides.size();
+            for (String key : base.keySet()) {
+                if (!overrides.containsKey(key))
+                    ++n;
+            }
+            size = n;
+        }
+        return n;
+    }
+
+    @Override
+    public Collection<ConfigValue> values() {
+        return new AbstractCollection<ConfigValue>() {
+            @Override
+            public Iterator<ConfigValue> iterator() {
+                final Iterator<String> keys = new KeyIterator();
+                return new Iterator<ConfigValue>() {
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public ConfigValue next() {
+                        return get(keys.next());
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException("config objects are immutable");
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return OverlayConfigObject.this.size();
+            }
+        };
+    }
+
+    @Override
+    protected void render(RenderBuffer sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+        merged().render(sb, indent, atRoot, options);
+    }
+
+    @Override
+    protected boolean canEqual(Object other) {
+        return other instanceof ConfigObject;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        // like SimpleConfigObject, origin and the other extras aren't part
+        // of equality
+        if (other == this)
+            return true;
+        else if (other instanceof ConfigObject)
+            return canEqual(other) && SimpleConfigObject.mapEquals(this, (ConfigObject) other);
+        else
+            return false;
+    }
+
+    @Override
+    public int hashCode() {
+        // benign race, like String.hashCode()
+        int h = hashCode;
+        if (h == 0) {
+            h = SimpleConfigObject.mapHash(this);
+            hashCode = h;
+        }
+        return h;
+    }
+
+    // serialization all goes through SerializedConfigValue
+    private Object writeReplace() throws ObjectStreamException {
+        return new SerializedConfigValue(merged());
+    }
+}
@@ -230,11 +230,12 @@ public abstract class Parseable implements ConfigParseable {
 
     protected AbstractConfigValue rawParseValue(Reader reader, ConfigOrigin origin,
             ConfigParseOptions finalOptions) throws IOException {
+        OriginTable origins = new OriginTable(origin, finalOptions.getOriginTracking());
         if (finalOptions.getSyntax() == ConfigSyntax.PROPERTIES) {
-            return PropertiesParser.parse(reader, origin);
+            return PropertiesParser.parse(reader, origins);
         } else {
-            Iterator<Token> tokens = Tokenizer.tokenize(origin, reader, finalOptions.getSyntax());
-            return Parser.parse(tokens, origin, finalOptions, includeContext());
+            Iterator<Token> tokens = Tokenizer.tokenize(origins, reader, finalOptions.getSyntax());
+            return Parser.parse(tokens, origins, finalOptions, includeContext());
         }
     }
 
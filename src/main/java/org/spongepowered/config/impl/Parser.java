@@ -42,9 +42,9 @@ import org.spongepowered.config.ConfigValueType;
 final class Parser {
 
     static AbstractConfigValue parse(Iterator<Token> tokens,
-            ConfigOrigin origin, ConfigParseOptions options,
+            OriginTable origins, ConfigParseOptions options,
             ConfigIncludeContext includeContext) {
-        ParseContext context = new ParseContext(options.getSyntax(), origin, tokens,
+        ParseContext context = new ParseContext(options.getSyntax(), origins, tokens,
                 SimpleIncluder.makeFull(options.getIncluder()), includeContext);
         return context.parse();
     }
@@ -135,7 +135,7 @@ final class Parser {
         final private FullIncluder includer;
         final private ConfigIncludeContext includeContext;
         final private ConfigSyntax flavor;
-        final private ConfigOrigin baseOrigin;
+        final private OriginTable origins;
         final private LinkedList<Path> pathStack;
         // this is the number of "equals" we are inside,
         // used to modify the error message to reflect that
@@ -146,13 +146,13 @@ final class Parser {
         // problem we should be able to get rid of this variable.
         int arrayCount;
 
-        ParseContext(ConfigSyntax flavor, ConfigOrigin origin, Iterator<Token> tokens,
+        ParseContext(ConfigSyntax flavor, OriginTable origins, Iterator<Token> tokens,
                 FullIncluder includer, ConfigIncludeContext includeContext) {
             lineNumber = 1;
             buffer = new Stack<TokenWithComments>();
             this.tokens = tokens;
             this.flavor = flavor;
-            this.baseOrigin = origin;
+            this.origins = origins;
             this.includer = includer;
             this.includeContext = includeContext;
             this.pathStack = new LinkedList<Path>();
@@ -439,7 +439,7 @@ final class Parser {
         }
 
         private SimpleConfigOrigin lineOrigin() {
-            return ((SimpleConfigOrigin) baseOrigin).setLineNumber(lineNumber);
+            return origins.lineOrigin(lineNumber);
         }
 
         private ConfigException parseError(String message) {
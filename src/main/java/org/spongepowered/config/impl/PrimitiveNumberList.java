@@ -0,0 +1,182 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config.impl;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.spongepowered.config.ConfigOrigin;
+
+/**
+ * The elements of a list of numbers all of the same class, kept as a
+ * primitive array instead of one ConfigNumber each. Elements are created
+ * when they're asked for, so code going through the List interface sees no
+ * difference; getIntArray() and friends read the array directly. Origins
+ * and original text are only stored per element when they vary.
+ */
+final class PrimitiveNumberList extends AbstractList<AbstractConfigValue> implements RandomAccess {
+
+    // below this the ConfigNumber objects don't cost enough to bother
+    final private static int MIN_SIZE = 8;
+
+    // exactly one of these is non-null
+    final private int[] ints;
+    final private long[] longs;
+    final private double[] doubles;
+    // origin of every element, or null if they each have their own
+    final private ConfigOrigin origin;
+    final private ConfigOrigin[] origins;
+    // null if every element was written the way we'd print it
+    final private String[] texts;
+
+    private PrimitiveNumberList(int[] ints, long[] longs, double[] doubles, ConfigOrigin origin,
+            ConfigOrigin[] origins, String[] texts) {
+        this.ints = ints;
+        this.longs = longs;
+        this.doubles = doubles;
+        this.origin = origin;
+        this.origins = origins;
+        this.texts = texts;
+    }
+
+    // returns values itself if it can't or needn't be made compact
+    static List<AbstractConfigValue> compact(List<AbstractConfigValue> values) {
+        int n = values.size();
+        if (n < MIN_SIZE || values instanceof PrimitiveNumberList)
+            return values;
+        Class<?> kind = values.get(0).getClass();
+        if (kind != ConfigInt.class && kind != ConfigLong.class && kind != ConfigDouble.class)
+            return values;
+
+        ConfigOrigin first = values.get(0).origin();
+        boolean sameOrigin = true;
+        boolean canonical = true;
+        for (AbstractConfigValue v : values) {
+            if (v.getClass() != kind)
+                return values;
+            if (sameOrigin && v.origin() != first)
+                sameOrigin = false;
+            if (canonical && !((ConfigNumber) v).originalTextIsDefault())
+                canonical = false;
+        }
+
+        int[] ints = kind == ConfigInt.class ? new int[n] : null;
+        long[] longs = kind == ConfigLong.class ? new long[n] : null;
+        double[] doubles = kind == ConfigDouble.class ? new double[n] : null;
+        ConfigOrigin[] origins = sameOrigin ? null : new ConfigOrigin[n];
+        String[] texts = canonical ? null : new String[n];
+        for (int i = 0; i < n; ++i) {
+            ConfigNumber v = (ConfigNumber) values.get(i);
+            if (ints != null)
+                ints[i] = (int) v.longValue();
+            else if (longs != null)
+                longs[i] = v.longValue();
+            else
+                doubles[i] = v.doubleValue();
+            if (origins != null)
+                origins[i] = v.origin();
+            if (texts != null)
+                texts[i] = v.originalText;
+        }
+        return new PrimitiveNumberList(ints, longs, doubles, sameOrigin ? first : null, origins,
+                texts);
+    }
+
+    @Override
+    public AbstractConfigValue get(int i) {
+        ConfigOrigin o = origins == null ? origin : origins[i];
+        String text = texts == null ? null : texts[i];
+        if (ints != null)
+            return new ConfigInt(o, ints[i], text);
+        else if (longs != null)
+            return new ConfigLong(o, longs[i], text);
+        else
+            return new ConfigDouble(o, doubles[i], text);
+    }
+
+    @Override
+    public int size() {
+        if (ints != null)
+            return ints.length;
+        else if (longs != null)
+            return longs.length;
+        else
+            return doubles.length;
+    }
+
+    // these return a fresh array, or null if the values aren't all of the
+    // right kind to convert without checks
+
+    int[] toIntArray() {
+        return ints == null ? null : ints.clone();
+    }
+
+    long[] toLongArray() {
+        if (longs != null)
+            return longs.clone();
+        if (ints == null)
+            return null;
+        long[] a = new long[ints.length];
+        for (int i = 0; i < a.length; ++i)
+            a[i] = ints[i];
+        return a;
+    }
+
+    double[] toDoubleArray() {
+        if (doubles != null)
+            return doubles.clone();
+        double[] a = new double[size()];
+        for (int i = 0; i < a.length; ++i)
+            a[i] = ints != null ? ints[i] : longs[i];
+        return a;
+    }
+
+    // for rendering without creating elements; longAt() needs integral()
+
+    boolean integral() {
+        return doubles == null;
+    }
+
+    long longAt(int i) {
+        return ints != null ? ints[i] : longs[i];
+    }
+
+    double doubleAt(int i) {
+        return doubles[i];
+    }
+
+    // unlike equals(), this also compares origins and how numbers were written
+    boolean sameAs(PrimitiveNumberList other) {
+        return Arrays.equals(ints, other.ints) && Arrays.equals(longs, other.longs)
+                && Arrays.equals(doubles, other.doubles)
+                && ConfigImplUtil.equalsHandlingNull(origin, other.origin)
+                && Arrays.equals(origins, other.origins) && Arrays.equals(texts, other.texts);
+    }
+
+    int primitiveHash() {
+        if (ints != null)
+            return Arrays.hashCode(ints);
+        else if (longs != null)
+            return Arrays.hashCode(longs);
+        else
+            return Arrays.hashCode(doubles);
+    }
+}
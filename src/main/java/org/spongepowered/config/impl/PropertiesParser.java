@@ -21,8 +21,6 @@ package org.spongepowered.config.impl;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -34,11 +32,19 @@ import org.spongepowered.config.ConfigException;
 import org.spongepowered.config.ConfigOrigin;
 
 final class PropertiesParser {
+    // reads the file the way Properties.load() does, but puts each pair
+    // straight into the tree and gives it the origin of its key's line
     static AbstractConfigObject parse(Reader reader,
-            ConfigOrigin origin) throws IOException {
-        Properties props = new Properties();
-        props.load(reader);
-        return fromProperties(origin, props);
+            OriginTable origins) throws IOException {
+        Scope root = new Scope();
+        ScopeNames names = new ScopeNames();
+        LineReader lines = new LineReader(reader);
+        while (lines.next()) {
+            SimpleConfigOrigin origin = origins.lineOrigin(lines.lineNumber());
+            root.putPropertyKey(names, lines.key(origin),
+                    new ConfigString(origin, lines.value(origin)));
+        }
+        return root.build(origins.base());
     }
 
     static String lastElement(String path) {
@@ -58,33 +64,109 @@ final class PropertiesParser {
     }
 
     static Path pathFromPropertyKey(String key) {
-        String last = lastElement(key);
-        String exceptLast = exceptLastElement(key);
-        Path path = new Path(last, null);
-        while (exceptLast != null) {
-            last = lastElement(exceptLast);
-            exceptLast = exceptLastElement(exceptLast);
-            path = new Path(last, path);
+        List<String> elements = new ArrayList<String>();
+        int start = 0;
+        int dot;
+        while ((dot = key.indexOf('.', start)) >= 0) {
+            elements.add(key.substring(start, dot));
+            start = dot + 1;
+        }
+        Path path = new Path(key.substring(start), null);
+        for (int i = elements.size() - 1; i >= 0; --i) {
+            path = new Path(elements.get(i), path);
         }
         return path;
     }
 
     static AbstractConfigObject fromProperties(ConfigOrigin origin,
             Properties props) {
-        Map<Path, Object> pathMap = new HashMap<Path, Object>();
+        Scope root = new Scope();
+        ScopeNames names = new ScopeNames();
         for (Map.Entry<Object, Object> entry : props.entrySet()) {
             Object key = entry.getKey();
             if (key instanceof String) {
-                Path path = pathFromPropertyKey((String) key);
-                pathMap.put(path, entry.getValue());
+                Object value = entry.getValue();
+                // silently ignore non-string values in Properties, though
+                // their parents still become objects
+                root.putPropertyKey(names, (String) key, value instanceof String ? new ConfigString(
+                        origin, (String) value) : null);
             }
         }
-        return fromPathMap(origin, pathMap, true /* from properties */);
+        return root.build(origin);
+    }
+
+    /*
+     * Turns the object fromProperties() made from oldProps into the one it
+     * would make from newProps, rebuilding only the top-level keys that have
+     * a changed, added or removed property under them; the rest of the tree
+     * is shared with the old object, which is returned as-is if nothing
+     * changed. Objects win over strings per top-level key, so rebuilding a
+     * whole top-level key is enough to keep that rule.
+     */
+    static AbstractConfigObject patchProperties(AbstractConfigObject old,
+            Map<?, ?> oldProps, Map<?, ?> newProps) {
+        Set<String> changed = new HashSet<String>();
+        for (Map.Entry<?, ?> entry : newProps.entrySet()) {
+            Object key = entry.getKey();
+            if (key instanceof String && !entry.getValue().equals(oldProps.get(key)))
+                changed.add(firstElement((String) key));
+        }
+        for (Object key : oldProps.keySet()) {
+            if (key instanceof String && !newProps.containsKey(key))
+                changed.add(firstElement((String) key));
+        }
+        if (changed.isEmpty())
+            return old;
+
+        ConfigOrigin origin = old.origin();
+        Scope root = new Scope();
+        ScopeNames names = new ScopeNames();
+        String[] changedFirst = changed.toArray(new String[changed.size()]);
+        for (Map.Entry<?, ?> entry : newProps.entrySet()) {
+            Object key = entry.getKey();
+            if (key instanceof String && underAny(changedFirst, (String) key)) {
+                Object value = entry.getValue();
+                root.putPropertyKey(names, (String) key, value instanceof String ? new ConfigString(
+                        origin, (String) value) : null);
+            }
+        }
+        AbstractConfigObject rebuilt = root.build(origin);
+
+        Map<String, AbstractConfigValue> map = new HashMap<String, AbstractConfigValue>();
+        for (String key : old.keySet()) {
+            if (!changed.contains(key))
+                map.put(key, old.get(key));
+        }
+        for (String key : rebuilt.keySet()) {
+            map.put(key, rebuilt.get(key));
+        }
+        return new SimpleConfigObject(origin, map, ResolveStatus.RESOLVED,
+                false /* ignoresFallbacks */);
+    }
+
+    // like changed.contains(firstElement(key)) without the substring, for
+    // the usual handful of changed keys
+    private static boolean underAny(String[] firstElements, String key) {
+        int i = key.indexOf('.');
+        int length = i < 0 ? key.length() : i;
+        for (String first : firstElements) {
+            if (first.length() == length && key.startsWith(first))
+                return true;
+        }
+        return false;
+    }
+
+    private static String firstElement(String key) {
+        int i = key.indexOf('.');
+        if (i < 0)
+            return key;
+        else
+            return key.substring(0, i);
     }
 
     static AbstractConfigObject fromPathMap(ConfigOrigin origin,
             Map<?, ?> pathExpressionMap) {
-        Map<Path, Object> pathMap = new HashMap<Path, Object>();
+        Scope root = new Scope();
         for (Map.Entry<?, ?> entry : pathExpressionMap.entrySet()) {
             Object keyObj = entry.getKey();
             if (!(keyObj instanceof String)) {
@@ -92,121 +174,338 @@ final class PropertiesParser {
                         "Map has a non-string as a key, expecting a path expression as a String");
             }
             Path path = Path.newPath((String) keyObj);
-            pathMap.put(path, entry.getValue());
+            root.putPath(path, ConfigImpl.fromAnyRef(entry.getValue(), origin,
+                    FromMapMode.KEYS_ARE_PATHS));
         }
-        return fromPathMap(origin, pathMap, false /* from properties */);
+        return root.build(origin);
     }
 
-    private static AbstractConfigObject fromPathMap(ConfigOrigin origin,
-            Map<Path, Object> pathMap, boolean convertedFromProperties) {
-        /*
-         * First, build a list of paths that will have values, either string or
-         * object values.
-         */
-        Set<Path> scopePaths = new HashSet<Path>();
-        Set<Path> valuePaths = new HashSet<Path>();
-        for (Path path : pathMap.keySet()) {
-            // add value's path
-            valuePaths.add(path);
-
-            // all parent paths are objects
-            Path next = path.parent();
-            while (next != null) {
-                scopePaths.add(next);
-                next = next.parent();
+    /*
+     * One object of the tree being built, in a single pass over the keys in
+     * whatever order they come. Each child is either another Scope, if its
+     * key is the parent of some other key, or the value stored at its key;
+     * the children map becomes the SimpleConfigObject's map once the Scopes
+     * in it are replaced by the objects built from them.
+     */
+    private static final class Scope {
+        private final Map<String, Object> children = new HashMap<String, Object>();
+
+        // splits the key on every '.', without quoting rules; if a key is
+        // both a value and the parent of other values, objects "win"
+        void putPropertyKey(ScopeNames names, String key, AbstractConfigValue value) {
+            Scope scope = this;
+            int start = 0;
+            int dot;
+            while ((dot = key.indexOf('.', start)) >= 0) {
+                String element = names.get(key, start, dot);
+                Object child = scope.children.get(element);
+                if (!(child instanceof Scope)) {
+                    child = new Scope();
+                    scope.children.put(element, child);
+                }
+                scope = (Scope) child;
+                start = dot + 1;
             }
+            String last = key.substring(start);
+            if (value != null && !(scope.children.get(last) instanceof Scope))
+                scope.children.put(last, value);
         }
 
-        if (convertedFromProperties) {
-            /*
-             * If any string values are also objects containing other values,
-             * drop those string values - objects "win".
-             */
-            valuePaths.removeAll(scopePaths);
-        } else {
-            /* If we didn't start out as properties, then this is an error. */
-            for (Path path : valuePaths) {
-                if (scopePaths.contains(path)) {
-                    throw new ConfigException.BugOrBroken(
-                            "In the map, path '"
-                                    + path.render()
-                                    + "' occurs as both the parent object of a value and as a value. "
-                                    + "Because Map has no defined ordering, this is a broken situation.");
+        // a map has no defined ordering, so a key that is both a value and
+        // the parent of other values is an error rather than a precedence
+        void putPath(Path path, AbstractConfigValue value) {
+            Scope scope = this;
+            Path remaining = path;
+            int depth = 1;
+            while (remaining.remainder() != null) {
+                Object child = scope.children.get(remaining.first());
+                if (child == null) {
+                    child = new Scope();
+                    scope.children.put(remaining.first(), child);
+                } else if (!(child instanceof Scope)) {
+                    throw bothParentAndValue(path.subPath(0, depth));
                 }
+                scope = (Scope) child;
+                remaining = remaining.remainder();
+                depth += 1;
             }
+            if (scope.children.get(remaining.first()) instanceof Scope)
+                throw bothParentAndValue(path);
+            scope.children.put(remaining.first(), value);
         }
 
-        /*
-         * Create maps for the object-valued values.
-         */
-        Map<String, AbstractConfigValue> root = new HashMap<String, AbstractConfigValue>();
-        Map<Path, Map<String, AbstractConfigValue>> scopes = new HashMap<Path, Map<String, AbstractConfigValue>>();
+        private static ConfigException bothParentAndValue(Path path) {
+            return new ConfigException.BugOrBroken("In the map, path '" + path.render()
+                    + "' occurs as both the parent object of a value and as a value. "
+                    + "Because Map has no defined ordering, this is a broken situation.");
+        }
 
-        for (Path path : scopePaths) {
-            Map<String, AbstractConfigValue> scope = new HashMap<String, AbstractConfigValue>();
-            scopes.put(path, scope);
+        @SuppressWarnings("unchecked")
+        AbstractConfigObject build(ConfigOrigin origin) {
+            for (Map.Entry<String, Object> entry : children.entrySet()) {
+                if (entry.getValue() instanceof Scope)
+                    entry.setValue(((Scope) entry.getValue()).build(origin));
+            }
+            Map<String, ?> values = children;
+            return new SimpleConfigObject(origin, (Map<String, AbstractConfigValue>) values,
+                    ResolveStatus.RESOLVED, false /* ignoresFallbacks */);
         }
+    }
 
-        /* Store string values in the associated scope maps */
-        for (Path path : valuePaths) {
-            Path parentPath = path.parent();
-            Map<String, AbstractConfigValue> parent = parentPath != null ? scopes
-                    .get(parentPath) : root;
+    /*
+     * The elements of property keys that name objects, so that the many keys
+     * in one object don't each cut a new copy of its name out of the key only
+     * to look it up. Open addressing on the char range, since a HashMap
+     * would need the substring first.
+     */
+    private static final class ScopeNames {
+        private String[] table = new String[64];
+        private int size = 0;
 
-            String last = path.last();
-            Object rawValue = pathMap.get(path);
-            AbstractConfigValue value;
-            if (convertedFromProperties) {
-                if (rawValue instanceof String) {
-                    value = new ConfigString(origin, (String) rawValue);
-                } else {
-                    // silently ignore non-string values in Properties
-                    value = null;
+        String get(String key, int start, int end) {
+            int length = end - start;
+            int hash = 0;
+            for (int i = start; i < end; ++i)
+                hash = 31 * hash + key.charAt(i);
+            int mask = table.length - 1;
+            int i = (hash ^ (hash >>> 16)) & mask;
+            String name;
+            while ((name = table[i]) != null) {
+                if (name.length() == length && key.regionMatches(start, name, 0, length))
+                    return name;
+                i = (i + 1) & mask;
+            }
+            name = key.substring(start, end);
+            table[i] = name;
+            size += 1;
+            if (size * 2 > table.length)
+                grow();
+            return name;
+        }
+
+        private void grow() {
+            String[] old = table;
+            table = new String[old.length * 2];
+            int mask = table.length - 1;
+            for (String name : old) {
+                if (name != null) {
+                    // same as the hash in get(), which is String.hashCode()
+                    int hash = name.hashCode();
+                    int i = (hash ^ (hash >>> 16)) & mask;
+                    while (table[i] != null)
+                        i = (i + 1) & mask;
+                    table[i] = name;
+                }
+            }
+        }
+    }
+
+    /*
+     * Splits a properties file into keys and values with the rules of
+     * Properties.load(Reader): a logical line is made of natural lines
+     * joined where one ends in an odd number of backslashes, leading
+     * whitespace is skipped on each of them, lines starting with '#' or
+     * '!' are comments, the key ends at the first unescaped '=', ':' or
+     * whitespace, and escapes are the same as in Java strings plus any
+     * other escaped character standing for itself.
+     */
+    private static final class LineReader {
+        final private Reader reader;
+        final private char[] buffer = new char[8192];
+        private int offset = 0;
+        private int limit = 0;
+        // the logical line without continuations, with escapes kept
+        private char[] line = new char[256];
+        private int length;
+        private int keyEnd;
+        private int valueStart;
+        // line number of the next character read, and of the current key
+        private int nextLine = 1;
+        private boolean afterCR = false;
+        private int keyLine;
+
+        LineReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        private int read() throws IOException {
+            if (offset >= limit) {
+                limit = reader.read(buffer);
+                offset = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
                 }
+            }
+            char c = buffer[offset++];
+            if (c == '\r') {
+                nextLine += 1;
+                afterCR = true;
             } else {
-                value = ConfigImpl.fromAnyRef(pathMap.get(path), origin,
-                        FromMapMode.KEYS_ARE_PATHS);
+                if (c == '\n' && !afterCR)
+                    nextLine += 1;
+                afterCR = false;
             }
-            if (value != null)
-                parent.put(last, value);
-        }
-
-        /*
-         * Make a list of scope paths from longest to shortest, so children go
-         * before parents.
-         */
-        List<Path> sortedScopePaths = new ArrayList<Path>();
-        sortedScopePaths.addAll(scopePaths);
-        // sort descending by length
-        Collections.sort(sortedScopePaths, new Comparator<Path>() {
-            @Override
-            public int compare(Path a, Path b) {
-                // Path.length() is O(n) so in theory this sucks
-                // but in practice we can make Path precompute length
-                // if it ever matters.
-                return b.length() - a.length();
+            return c;
+        }
+
+        private static boolean isWhitespace(int c) {
+            return c == ' ' || c == '\t' || c == '\f';
+        }
+
+        // reads the next logical line that isn't blank or a comment
+        boolean next() throws IOException {
+            int len = 0;
+            boolean skipWhitespace = true;
+            boolean continued = false;
+            boolean atLineStart = true;
+            boolean comment = false;
+            boolean precedingBackslash = false;
+            boolean skipLF = false;
+            while (true) {
+                int c = read();
+                if (c < 0) {
+                    if (len == 0 || comment)
+                        return false;
+                    if (precedingBackslash)
+                        len -= 1;
+                    break;
+                }
+                if (skipLF) {
+                    skipLF = false;
+                    if (c == '\n')
+                        continue;
+                }
+                if (skipWhitespace) {
+                    // an empty line after a continuation ends the logical
+                    // line, other blank lines are skipped
+                    if (isWhitespace(c) || (!continued && (c == '\r' || c == '\n')))
+                        continue;
+                    skipWhitespace = false;
+                    continued = false;
+                }
+                if (atLineStart) {
+                    atLineStart = false;
+                    if (c == '#' || c == '!') {
+                        comment = true;
+                        continue;
+                    }
+                }
+                if (c != '\n' && c != '\r') {
+                    if (comment)
+                        continue;
+                    if (len == 0)
+                        keyLine = nextLine;
+                    if (len == line.length) {
+                        char[] grown = new char[len * 2];
+                        System.arraycopy(line, 0, grown, 0, len);
+                        line = grown;
+                    }
+                    line[len++] = (char) c;
+                    precedingBackslash = c == '\\' && !precedingBackslash;
+                } else if (comment || len == 0) {
+                    comment = false;
+                    atLineStart = true;
+                    skipWhitespace = true;
+                    precedingBackslash = false;
+                } else if (precedingBackslash) {
+                    len -= 1;
+                    skipWhitespace = true;
+                    continued = true;
+                    precedingBackslash = false;
+                    skipLF = c == '\r';
+                } else {
+                    break;
+                }
+            }
+            length = len;
+            split();
+            return true;
+        }
+
+        private void split() {
+            boolean hasSeparator = false;
+            boolean precedingBackslash = false;
+            keyEnd = 0;
+            valueStart = length;
+            while (keyEnd < length) {
+                char c = line[keyEnd];
+                if (!precedingBackslash && (c == '=' || c == ':')) {
+                    valueStart = keyEnd + 1;
+                    hasSeparator = true;
+                    break;
+                } else if (!precedingBackslash && isWhitespace(c)) {
+                    valueStart = keyEnd + 1;
+                    break;
+                }
+                precedingBackslash = c == '\\' && !precedingBackslash;
+                keyEnd += 1;
+            }
+            while (valueStart < length) {
+                char c = line[valueStart];
+                if (!isWhitespace(c)) {
+                    if (!hasSeparator && (c == '=' || c == ':'))
+                        hasSeparator = true;
+                    else
+                        break;
+                }
+                valueStart += 1;
             }
-        });
+        }
 
-        /*
-         * Create ConfigObject for each scope map, working from children to
-         * parents to avoid modifying any already-created ConfigObject. This is
-         * where we need the sorted list.
-         */
-        for (Path scopePath : sortedScopePaths) {
-            Map<String, AbstractConfigValue> scope = scopes.get(scopePath);
+        int lineNumber() {
+            return keyLine;
+        }
 
-            Path parentPath = scopePath.parent();
-            Map<String, AbstractConfigValue> parent = parentPath != null ? scopes
-                    .get(parentPath) : root;
+        String key(ConfigOrigin origin) {
+            return unescape(0, keyEnd, origin);
+        }
 
-            AbstractConfigObject o = new SimpleConfigObject(origin, scope,
-                    ResolveStatus.RESOLVED, false /* ignoresFallbacks */);
-            parent.put(scopePath.last(), o);
+        String value(ConfigOrigin origin) {
+            return unescape(valueStart, length, origin);
         }
 
-        // return root config object
-        return new SimpleConfigObject(origin, root, ResolveStatus.RESOLVED,
-                false /* ignoresFallbacks */);
+        private String unescape(int start, int end, ConfigOrigin origin) {
+            int i = start;
+            while (i < end && line[i] != '\\')
+                i += 1;
+            if (i == end)
+                return new String(line, start, end - start);
+
+            StringBuilder sb = new StringBuilder(end - start);
+            sb.append(line, start, i - start);
+            while (i < end) {
+                char c = line[i++];
+                if (c != '\\') {
+                    sb.append(c);
+                } else if (i < end) {
+                    c = line[i++];
+                    if (c == 'u') {
+                        if (end - i < 4)
+                            throw new ConfigException.Parse(origin, "Malformed \\uxxxx encoding");
+                        int code = 0;
+                        for (int j = 0; j < 4; ++j) {
+                            int digit = Character.digit(line[i++], 16);
+                            if (digit < 0)
+                                throw new ConfigException.Parse(origin,
+                                        "Malformed \\uxxxx encoding");
+                            code = (code << 4) + digit;
+                        }
+                        sb.append((char) code);
+                    } else if (c == 't') {
+                        sb.append('\t');
+                    } else if (c == 'r') {
+                        sb.append('\r');
+                    } else if (c == 'n') {
+                        sb.append('\n');
+                    } else if (c == 'f') {
+                        sb.append('\f');
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+            return sb.toString();
+        }
     }
 }
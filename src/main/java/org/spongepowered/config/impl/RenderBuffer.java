@@ -0,0 +1,222 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.spongepowered.config.ConfigRenderOptions;
+
+/**
+ * What values render into. It's a StringBuilder when rendering to a string;
+ * when rendering to an Appendable, the builder is handed to it in chunks
+ * whenever it fills, so the whole rendering is never in memory at once.
+ * Render methods only ever append and never go back to change what they
+ * wrote (such as chopping a trailing comma), which is what makes that
+ * possible.
+ * <p>
+ * Values that memoize their rendering mark() where it starts and call
+ * memoizeSinceMark() where it ends. A fragment is only handed to its value
+ * (see RenderMemo) once nothing around it can be memoized instead, so each
+ * bit of text is copied once however deeply it nests; draining holds back
+ * the text of the outermost open mark still short enough to be memoized,
+ * so streaming renders memoize as much as rendering to a string does.
+ */
+final class RenderBuffer {
+    private static final int CHUNK_SIZE = 8192;
+    // longer fragments aren't worth the memory to memoize, shorter ones
+    // aren't worth the memo
+    static final int MAX_FRAGMENT = 8192;
+    private static final int MIN_FRAGMENT = 64;
+
+    // a fragment that will be memoized unless one around it is
+    private static final class Pending {
+        final RenderMemo.Owner owner;
+        final long start;
+        final long end;
+        final int indent;
+        final boolean atRoot;
+        final ConfigRenderOptions options;
+
+        Pending(RenderMemo.Owner owner, long start, long end, int indent, boolean atRoot,
+                ConfigRenderOptions options) {
+            this.owner = owner;
+            this.start = start;
+            this.end = end;
+            this.indent = indent;
+            this.atRoot = atRoot;
+            this.options = options;
+        }
+    }
+
+    /**
+     * Carries an IOException from the Appendable out through the render
+     * methods, which don't throw checked exceptions.
+     */
+    static final class WriteFailed extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        WriteFailed(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    private final StringBuilder sb;
+    // null when rendering to a string
+    private final Appendable out;
+    private char[] chars;
+    // how much has been handed to out, so the position of sb's first char
+    private long drained = 0;
+    // positions of the open marks, outermost first
+    private long[] marks = new long[16];
+    private int markCount = 0;
+    // closed fragments not yet memoized, in order
+    private final List<Pending> pending = new ArrayList<Pending>();
+    // false for toString(), which shouldn't push out real renderings
+    private final boolean memoize;
+
+    RenderBuffer() {
+        this(true);
+    }
+
+    RenderBuffer(boolean memoize) {
+        this.sb = new StringBuilder();
+        this.out = null;
+        this.memoize = memoize;
+    }
+
+    RenderBuffer(Appendable out) {
+        this.sb = new StringBuilder(CHUNK_SIZE + MAX_FRAGMENT + 256);
+        this.out = out;
+        this.memoize = true;
+    }
+
+    void mark() {
+        if (!memoize)
+            return;
+        if (markCount == marks.length)
+            marks = Arrays.copyOf(marks, markCount * 2);
+        marks[markCount++] = drained + sb.length();
+    }
+
+    // closes the innermost mark; what was appended since it is memoized for
+    // owner if it's all still here and worth memoizing, and nothing around
+    // it is memoized instead
+    void memoizeSinceMark(RenderMemo.Owner owner, int indent, boolean atRoot,
+            ConfigRenderOptions options) {
+        if (!memoize)
+            return;
+        long start = marks[--markCount];
+        long end = drained + sb.length();
+        long length = end - start;
+        int inside = pending.size();
+        while (inside > 0 && pending.get(inside - 1).start >= start)
+            --inside;
+        if (start >= drained && length <= MAX_FRAGMENT && length >= MIN_FRAGMENT) {
+            // this fragment's text includes the ones inside it
+            pending.subList(inside, pending.size()).clear();
+            pending.add(new Pending(owner, start, end, indent, atRoot, options));
+        } else {
+            remember(inside, pending.size());
+        }
+        if (markCount == 0)
+            remember(0, pending.size());
+    }
+
+    // memoizes pending fragments from index to index
+    private void remember(int from, int to) {
+        for (int i = from; i < to; ++i) {
+            Pending p = pending.get(i);
+            RenderMemo.remember(p.owner, sb, (int) (p.start - drained), (int) (p.end - drained),
+                    p.indent, p.atRoot, p.options);
+        }
+        pending.subList(from, to).clear();
+    }
+
+    RenderBuffer append(String s) {
+        sb.append(s);
+        if (out != null && sb.length() >= CHUNK_SIZE + MAX_FRAGMENT)
+            drain(false);
+        return this;
+    }
+
+    RenderBuffer append(char c) {
+        sb.append(c);
+        if (out != null && sb.length() >= CHUNK_SIZE + MAX_FRAGMENT)
+            drain(false);
+        return this;
+    }
+
+    private void drain(boolean all) {
+        long end = drained + sb.length();
+        long keepFrom = end;
+        if (!all) {
+            for (int i = 0; i < markCount; ++i) {
+                if (marks[i] >= drained && end - marks[i] <= MAX_FRAGMENT) {
+                    keepFrom = marks[i];
+                    break;
+                }
+            }
+        }
+        // fragments about to go can't be inside a memoized one any more
+        int going = 0;
+        while (going < pending.size() && pending.get(going).start < keepFrom)
+            ++going;
+        remember(0, going);
+        int length = (int) (keepFrom - drained);
+        try {
+            if (out instanceof Writer) {
+                // skip the String Writer.append(CharSequence) would make
+                if (chars == null || chars.length < length)
+                    chars = new char[length];
+                sb.getChars(0, length, chars, 0);
+                ((Writer) out).write(chars, 0, length);
+            } else {
+                out.append(sb, 0, length);
+            }
+        } catch (IOException e) {
+            throw new WriteFailed(e);
+        }
+        sb.delete(0, length);
+        drained = keepFrom;
+    }
+
+    // writes out whatever is left after rendering to an Appendable
+    void finish() throws IOException {
+        try {
+            if (sb.length() > 0)
+                drain(true);
+        } catch (WriteFailed e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return sb.toString();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config.impl;
+
+import java.util.ArrayDeque;
+
+import org.spongepowered.config.ConfigRenderOptions;
+
+/**
+ * A rendering of an immutable object or list, so rendering the same value
+ * again (or a config that shares it, as after withValue() or
+ * ConfigFactory.intern()) appends the text instead of rendering the subtree.
+ * The text depends on the options, indent and whether the value is at the
+ * root, so those are part of the memo; a value keeps its two latest
+ * renderings, so alternating between two kinds of render doesn't throw
+ * either away.
+ * <p>
+ * RenderBuffer only memoizes the outermost fragments short enough to keep
+ * (see RenderBuffer.MAX_FRAGMENT), not each level inside them, so a
+ * rendering is copied once. All memos share a budget of MAX_CHARS
+ * characters, whether or not their value is still around. Once it's full,
+ * a new memo takes the place of the oldest ones not used lately, or isn't
+ * kept if they all were; so a rendering bigger than the budget keeps part of
+ * itself memoized rather than evicting its own start as it goes.
+ * "Lately" is counted in epochs, each ending when another MAX_CHARS of
+ * memos were asked for.
+ */
+final class RenderMemo {
+    /**
+     * What a memo is stored on.
+     */
+    interface Owner {
+        RenderMemo renderMemo();
+
+        void setRenderMemo(RenderMemo memo);
+    }
+
+    // about 8M of text
+    static final int MAX_CHARS = 4 * 1024 * 1024;
+    // how many recently used memos a new one looks past for one to replace
+    private static final int MAX_SKIPPED = 16;
+
+    // memos holding text, oldest first, and how many chars they hold
+    private static final ArrayDeque<RenderMemo> kept = new ArrayDeque<RenderMemo>();
+    private static long keptChars = 0;
+    private static volatile int epoch = 0;
+    // chars asked for in this epoch
+    private static long asked = 0;
+
+    private final int key;
+    private final int length;
+    // null once the budget took it back
+    private volatile String text;
+    // the value's rendering before this one; we only keep two, so it
+    // doesn't have an older one of its own
+    private volatile RenderMemo older;
+    // the epoch it was last used in; racy, it's only a hint
+    private int used;
+
+    private RenderMemo(int key, int length, RenderMemo older) {
+        this.key = key;
+        this.length = length;
+        this.older = older;
+        this.used = epoch;
+    }
+
+    private static int key(int indent, boolean atRoot, ConfigRenderOptions options) {
+        int bits = (options.getFormatted() ? 1 : 0) | (options.getJson() ? 2 : 0)
+                | (options.getComments() ? 4 : 0) | (options.getOriginComments() ? 8 : 0)
+                | (atRoot ? 16 : 0);
+        return (indent << 5) | bits;
+    }
+
+    // the memoized text of owner for this rendering, or null
+    static String get(Owner owner, int indent, boolean atRoot, ConfigRenderOptions options) {
+        RenderMemo memo = owner.renderMemo();
+        if (memo == null)
+            return null;
+        int key = key(indent, atRoot, options);
+        if (memo.key != key) {
+            memo = memo.older;
+            if (memo == null || memo.key != key)
+                return null;
+        }
+        int now = epoch;
+        // don't write the field on every hit, other threads may be reading it
+        if (memo.used != now)
+            memo.used = now;
+        return memo.text;
+    }
+
+    // stores chars start to end of sb as owner's rendering, in place of an
+    // older rendering of the same kind or else of its oldest, if the budget
+    // allows; they're only copied if it does
+    static void remember(Owner owner, StringBuilder sb, int start, int end, int indent,
+            boolean atRoot, ConfigRenderOptions options) {
+        int key = key(indent, atRoot, options);
+        RenderMemo latest = owner.renderMemo();
+        RenderMemo older = latest != null && latest.key == key ? latest.older : latest;
+        RenderMemo memo = new RenderMemo(key, end - start, older);
+        if (!keep(memo, sb, start))
+            return;
+        if (older == latest && latest != null)
+            latest.older = null;
+        owner.setRenderMemo(memo);
+    }
+
+    // for tests
+    String text() {
+        return text;
+    }
+
+    static synchronized long keptChars() {
+        return keptChars;
+    }
+
+    // adds memo to the budget with its text from sb, evicting memos not
+    // used lately to make room; false if that would take recently used ones
+    private static synchronized boolean keep(RenderMemo memo, StringBuilder sb, int start) {
+        int length = memo.length;
+        asked += length;
+        if (asked >= MAX_CHARS) {
+            asked = 0;
+            ++epoch;
+        }
+        int skipped = 0;
+        while (keptChars + length > MAX_CHARS) {
+            RenderMemo oldest = kept.removeFirst();
+            if (epoch - oldest.used <= 1) {
+                kept.addLast(oldest);
+                if (++skipped == MAX_SKIPPED)
+                    return false;
+            } else {
+                oldest.text = null;
+                keptChars -= oldest.length;
+            }
+        }
+        memo.text = sb.substring(start, start + length);
+        kept.addLast(memo);
+        keptChars += length;
+        return true;
+    }
+}
@@ -47,20 +47,32 @@ final class ResolveContext {
     // resolution fails.
     final private List<SubstitutionExpression> expressionTrace;
 
+    // null unless the options asked for profiling; also mutable
+    // and shared among ResolveContext in the same traversal.
+    final private SimpleResolveProfiler.Session profiling;
+
     ResolveContext(ResolveSource source, ResolveMemos memos, ConfigResolveOptions options,
-            Path restrictToChild, List<SubstitutionExpression> expressionTrace) {
+            Path restrictToChild, List<SubstitutionExpression> expressionTrace,
+            SimpleResolveProfiler.Session profiling) {
         this.source = source;
         this.memos = memos;
         this.options = options;
         this.restrictToChild = restrictToChild;
         this.expressionTrace = expressionTrace;
+        this.profiling = profiling;
     }
 
-    ResolveContext(AbstractConfigObject root, ConfigResolveOptions options, Path restrictToChild) {
+    ResolveContext(ResolveSource source, ConfigResolveOptions options, Path restrictToChild) {
         // LinkedHashSet keeps the traversal order which is at least useful
         // in error messages if nothing else
-        this(new ResolveSource(root), new ResolveMemos(), options, restrictToChild,
-                new ArrayList<SubstitutionExpression>());
+        this(source, new ResolveMemos(), options, restrictToChild,
+                new ArrayList<SubstitutionExpression>(),
+                options.getProfiler() != null ? ((SimpleResolveProfiler) options.getProfiler())
+                        .newSession() : null);
+    }
+
+    ResolveContext(AbstractConfigObject root, ConfigResolveOptions options, Path restrictToChild) {
+        this(new ResolveSource(root), options, restrictToChild);
     }
 
     ResolveSource source() {
@@ -83,7 +95,8 @@ final class ResolveContext {
         if (restrictTo == restrictToChild)
             return this;
         else
-            return new ResolveContext(source, memos, options, restrictTo, expressionTrace);
+            return new ResolveContext(source, memos, options, restrictTo, expressionTrace,
+                    profiling);
     }
 
     ResolveContext unrestricted() {
@@ -98,7 +111,19 @@ final class ResolveContext {
         expressionTrace.remove(expressionTrace.size() - 1);
     }
 
+    SimpleResolveProfiler.Session profiling() {
+        return profiling;
+    }
+
+    List<SubstitutionExpression> traceSnapshot() {
+        return new ArrayList<SubstitutionExpression>(expressionTrace);
+    }
+
     String traceString() {
+        return traceString(expressionTrace);
+    }
+
+    static String traceString(List<SubstitutionExpression> expressionTrace) {
         String separator = ", ";
         StringBuilder sb = new StringBuilder();
         for (SubstitutionExpression expr : expressionTrace) {
@@ -127,8 +152,13 @@ final class ResolveContext {
         }
 
         if (cached != null) {
+            if (profiling != null)
+                profiling.memoHit();
             return cached;
         } else {
+            if (profiling != null && isRestrictedToChild())
+                profiling.restrictedResolve();
+
             AbstractConfigValue resolved = source.resolveCheckingReplacement(this, original);
 
             if (resolved == null || resolved.resolveStatus() == ResolveStatus.RESOLVED) {
@@ -161,7 +191,12 @@ final class ResolveContext {
 
     static AbstractConfigValue resolve(AbstractConfigValue value, AbstractConfigObject root,
             ConfigResolveOptions options) {
-        ResolveContext context = new ResolveContext(root, options, null /* restrictToChild */);
+        return resolve(value, new ResolveSource(root), options);
+    }
+
+    static AbstractConfigValue resolve(AbstractConfigValue value, ResolveSource source,
+            ConfigResolveOptions options) {
+        ResolveContext context = new ResolveContext(source, options, null /* restrictToChild */);
 
         try {
             return context.resolve(value);
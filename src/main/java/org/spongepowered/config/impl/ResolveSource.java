@@ -29,6 +29,9 @@ import org.spongepowered.config.impl.AbstractConfigValue.NotPossibleToResolve;
  */
 final class ResolveSource {
     final private AbstractConfigObject root;
+    // if non-null, a precomputed map from path to value in the (resolved)
+    // root, see SimpleConfigResolveSource
+    final private Map<Path, AbstractConfigValue> index;
     // Conceptually, we transform the ResolveSource whenever we traverse
     // a substitution or delayed merge stack, in order to remove the
     // traversed node and therefore avoid circular dependencies.
@@ -36,15 +39,22 @@ final class ResolveSource {
     // mechanism instead of actually transforming the tree.
     final private Map<AbstractConfigValue, ResolveReplacer> replacements;
 
-    ResolveSource(AbstractConfigObject root) {
+    ResolveSource(AbstractConfigObject root, Map<Path, AbstractConfigValue> index) {
         this.root = root;
+        this.index = index;
         this.replacements = new IdentityHashMap<AbstractConfigValue, ResolveReplacer>();
     }
 
-    static private AbstractConfigValue findInObject(AbstractConfigObject obj,
-            ResolveContext context, SubstitutionExpression subst)
+    ResolveSource(AbstractConfigObject root) {
+        this(root, null);
+    }
+
+    private AbstractConfigValue findInRoot(ResolveContext context, SubstitutionExpression subst)
             throws NotPossibleToResolve {
-        return obj.peekPath(subst.path(), context);
+        if (index != null)
+            return index.get(subst.path());
+        else
+            return root.peekPath(subst.path(), context);
     }
 
     AbstractConfigValue lookupSubst(ResolveContext context, SubstitutionExpression subst,
@@ -53,7 +63,7 @@ final class ResolveSource {
         try {
             // First we look up the full path, which means relative to the
             // included file if we were not a root file
-            AbstractConfigValue result = findInObject(root, context, subst);
+            AbstractConfigValue result = findInRoot(context, subst);
 
             if (result == null) {
                 // Then we want to check relative to the root file. We don't
@@ -67,12 +77,12 @@ final class ResolveSource {
                 context.trace(unprefixed);
 
                 if (prefixLength > 0) {
-                    result = findInObject(root, context, unprefixed);
+                    result = findInRoot(context, unprefixed);
                 }
 
                 if (result == null && context.options().getUseSystemEnvironment()) {
-                    result = findInObject(ConfigImpl.envVariablesAsConfigObject(), context,
-                            unprefixed);
+                    result = ConfigImpl.envVariables().lookup(unprefixed.path(),
+                            context.options().getEnvVariableMapping());
                 }
             }
 
@@ -105,6 +115,12 @@ final class ResolveSource {
         if (replacer == null) {
             return value;
         } else {
+            if (context.profiling() != null) {
+                if (replacer == ResolveReplacer.cycleResolveReplacer)
+                    context.profiling().cycle();
+                else
+                    context.profiling().replacement();
+            }
             return replacer.replace(context);
         }
     }
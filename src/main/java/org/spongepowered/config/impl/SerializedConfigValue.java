@@ -28,10 +28,13 @@ import java.io.NotSerializableException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.io.ObjectStreamException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -48,7 +51,8 @@ import org.spongepowered.config.ConfigValueType;
  * doing it OO-style with each subclass. Seems better to have it all in one
  * place. This class implements a lame serialization format that supports
  * skipping unknown fields, so it's moderately more extensible than the default
- * Java serialization format.
+ * Java serialization format. Values are now written in a compact format (see
+ * writeCompact()); the older per-value field format can still be read.
  */
 class SerializedConfigValue extends AbstractConfigValue implements Externalizable {
 
@@ -80,7 +84,15 @@ class SerializedConfigValue extends AbstractConfigValue implements Externalizabl
         ORIGIN_URL,
         ORIGIN_COMMENTS,
         ORIGIN_NULL_URL,
-        ORIGIN_NULL_COMMENTS;
+        ORIGIN_NULL_COMMENTS,
+
+        // The compact format: a root value written by writeCompact() follows
+        // the code, with no length and nothing after it
+        ROOT_COMPACT,
+
+        // A delta between two configs written by writeDelta(), also with no
+        // length
+        ROOT_DELTA;
 
         static SerializedField forInt(int b) {
             if (b < values().length)
@@ -279,6 +291,8 @@ class SerializedConfigValue extends AbstractConfigValue implements Externalizabl
             case ROOT_WAS_CONFIG:
             case VALUE_DATA:
             case VALUE_ORIGIN:
+            case ROOT_COMPACT:
+            case ROOT_DELTA:
                 throw new IOException("Not expecting this field here: " + field);
             case UNKNOWN:
                 // skip unknown field
@@ -290,49 +304,7 @@ class SerializedConfigValue extends AbstractConfigValue implements Externalizabl
         }
     }
 
-    private static void writeValueData(DataOutput out, ConfigValue value) throws IOException {
-        SerializedValueType st = SerializedValueType.forValue(value);
-        out.writeByte(st.ordinal());
-        switch (st) {
-        case BOOLEAN:
-            out.writeBoolean(((ConfigBoolean) value).unwrapped());
-            break;
-        case NULL:
-            break;
-        case INT:
-            // saving numbers as both string and binary is redundant but easy
-            out.writeInt(((ConfigInt) value).unwrapped());
-            out.writeUTF(((ConfigNumber) value).transformToString());
-            break;
-        case LONG:
-            out.writeLong(((ConfigLong) value).unwrapped());
-            out.writeUTF(((ConfigNumber) value).transformToString());
-            break;
-        case DOUBLE:
-            out.writeDouble(((ConfigDouble) value).unwrapped());
-            out.writeUTF(((ConfigNumber) value).transformToString());
-            break;
-        case STRING:
-            out.writeUTF(((ConfigString) value).unwrapped());
-            break;
-        case LIST:
-            ConfigList list = (ConfigList) value;
-            out.writeInt(list.size());
-            for (ConfigValue v : list) {
-                writeValue(out, v, (SimpleConfigOrigin) list.origin());
-            }
-            break;
-        case OBJECT:
-            ConfigObject obj = (ConfigObject) value;
-            out.writeInt(obj.size());
-            for (Map.Entry<String, ConfigValue> e : obj.entrySet()) {
-                out.writeUTF(e.getKey());
-                writeValue(out, e.getValue(), (SimpleConfigOrigin) obj.origin());
-            }
-            break;
-        }
-    }
-
+    // the per-value field format, which we still read but no longer write
     private static AbstractConfigValue readValueData(DataInput in, SimpleConfigOrigin origin)
             throws IOException {
         int stb = in.readUnsignedByte();
@@ -379,20 +351,6 @@ class SerializedConfigValue extends AbstractConfigValue implements Externalizabl
         throw new IOException("Unhandled serialized value type: " + st);
     }
 
-    private static void writeValue(DataOutput out, ConfigValue value, SimpleConfigOrigin baseOrigin)
-            throws IOException {
-        FieldOut origin = new FieldOut(SerializedField.VALUE_ORIGIN);
-        writeOrigin(origin.data, (SimpleConfigOrigin) value.origin(),
-                baseOrigin);
-        writeField(out, origin);
-
-        FieldOut data = new FieldOut(SerializedField.VALUE_DATA);
-        writeValueData(data.data, value);
-        writeField(out, data);
-
-        writeEndMarker(out);
-    }
-
     private static AbstractConfigValue readValue(DataInput in, SimpleConfigOrigin baseOrigin)
             throws IOException {
         AbstractConfigValue value = null;
@@ -447,20 +405,482 @@ class SerializedConfigValue extends AbstractConfigValue implements Externalizabl
         }
     }
 
-    @Override
-    public void writeExternal(ObjectOutput out) throws IOException {
+    // The compact format replaces the per-value framing above, which
+    // buffered every value to length-prefix it and repeated every key and
+    // number text. Here the stream is written straight through: strings and
+    // origins are numbered the first time they're written and referred to
+    // by number after that, integers are varints, number text is only kept
+    // if it isn't how we'd print the number anyway, and origins can be left
+    // out altogether. Layout:
+    //
+    // root: varint version, byte flags (COMPACT_*), [origin if no
+    // COMPACT_ORIGINS], value
+    // value: byte type (| COMPACT_HAS_TEXT), [origin ref if COMPACT_ORIGINS],
+    // data as in readValueData() but with varints, string refs and no
+    // per-value fields
+    // string ref: varint 0 = null, 1 = new string (varint length, UTF-8
+    // bytes) that gets the next number, n = string number n - 2
+    // origin ref: varint 0 = same as the parent, 1 = new origin that gets
+    // the next number, n = origin number n - 2
+    // origin: description, line + 1, end line + 1, type byte, url, comment
+    // count + 1 (0 = null), comments
+    private static final int COMPACT_VERSION = 1;
+    private static final int COMPACT_WAS_CONFIG = 1;
+    private static final int COMPACT_ORIGINS = 2;
+    private static final int COMPACT_HAS_TEXT = 0x80;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final class CompactWriter {
+        final DataOutput out;
+        final boolean includeOrigins;
+        final Map<String, Integer> strings = new HashMap<String, Integer>();
+        // by identity, since origin equality ignores comments; values from
+        // the same line share an origin instance anyway
+        final Map<ConfigOrigin, Integer> origins = new IdentityHashMap<ConfigOrigin, Integer>();
+
+        CompactWriter(DataOutput out, boolean includeOrigins) {
+            this.out = out;
+            this.includeOrigins = includeOrigins;
+        }
+
+        void writeString(String s) throws IOException {
+            if (s == null) {
+                writeVarLong(out, 0);
+                return;
+            }
+            Integer n = strings.get(s);
+            if (n != null) {
+                writeVarLong(out, n + 2);
+            } else {
+                strings.put(s, strings.size());
+                byte[] bytes = s.getBytes(UTF8);
+                writeVarLong(out, 1);
+                writeVarLong(out, bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void writeOrigin(SimpleConfigOrigin origin) throws IOException {
+            Map<SerializedField, Object> m = origin.toFields();
+            writeString((String) m.get(SerializedField.ORIGIN_DESCRIPTION));
+            writeVarLong(out, lineOrMinus1(m.get(SerializedField.ORIGIN_LINE_NUMBER)) + 1);
+            writeVarLong(out, lineOrMinus1(m.get(SerializedField.ORIGIN_END_LINE_NUMBER)) + 1);
+            out.writeByte((Integer) m.get(SerializedField.ORIGIN_TYPE));
+            writeString((String) m.get(SerializedField.ORIGIN_URL));
+            List<String> comments = (List<String>) m.get(SerializedField.ORIGIN_COMMENTS);
+            if (comments == null) {
+                writeVarLong(out, 0);
+            } else {
+                writeVarLong(out, comments.size() + 1);
+                for (String c : comments)
+                    writeString(c);
+            }
+        }
+
+        private static int lineOrMinus1(Object line) {
+            return line == null ? -1 : (Integer) line;
+        }
+
+        void writeOriginRef(ConfigOrigin origin, ConfigOrigin parent) throws IOException {
+            if (origin == parent) {
+                writeVarLong(out, 0);
+                return;
+            }
+            Integer n = origins.get(origin);
+            if (n != null) {
+                writeVarLong(out, n + 2);
+            } else {
+                origins.put(origin, origins.size());
+                writeVarLong(out, 1);
+                writeOrigin((SimpleConfigOrigin) origin);
+            }
+        }
+
+        void writeValue(ConfigValue value, ConfigOrigin parent) throws IOException {
+            SerializedValueType st = SerializedValueType.forValue(value);
+            String text = null;
+            if (value instanceof ConfigNumber && !((ConfigNumber) value).originalTextIsDefault())
+                text = ((ConfigNumber) value).transformToString();
+            out.writeByte(st.ordinal() | (text != null ? COMPACT_HAS_TEXT : 0));
+            if (includeOrigins)
+                writeOriginRef(value.origin(), parent);
+
+            switch (st) {
+            case BOOLEAN:
+                out.writeBoolean(((ConfigBoolean) value).unwrapped());
+                break;
+            case NULL:
+                break;
+            case INT: // FALL THRU
+            case LONG:
+                writeVarLong(out, zigZag(((ConfigNumber) value).longValue()));
+                break;
+            case DOUBLE:
+                out.writeDouble(((ConfigDouble) value).unwrapped());
+                break;
+            case STRING:
+                writeString(((ConfigString) value).unwrapped());
+                break;
+            case LIST:
+                ConfigList list = (ConfigList) value;
+                writeVarLong(out, list.size());
+                for (ConfigValue v : list) {
+                    writeValue(v, list.origin());
+                }
+                break;
+            case OBJECT:
+                ConfigObject obj = (ConfigObject) value;
+                writeVarLong(out, obj.size());
+                // not entrySet(), which builds and hashes a new set
+                for (String key : obj.keySet()) {
+                    writeString(key);
+                    writeValue(obj.get(key), obj.origin());
+                }
+                break;
+            }
+            if (text != null)
+                writeString(text);
+        }
+
+        void writeObjectDelta(ConfigObject oldObject, ConfigObject newObject) throws IOException {
+            List<String> changed = new ArrayList<String>();
+            for (String key : newObject.keySet()) {
+                ConfigValue v = oldObject.get(key);
+                // cached hashes make this cheap for unchanged subtrees
+                if (v == null || !v.equals(newObject.get(key)))
+                    changed.add(key);
+            }
+            for (String key : oldObject.keySet()) {
+                if (!newObject.containsKey(key))
+                    changed.add(key);
+            }
+
+            writeVarLong(out, changed.size());
+            for (String key : changed) {
+                writeString(key);
+                ConfigValue oldValue = oldObject.get(key);
+                ConfigValue newValue = newObject.get(key);
+                if (newValue == null) {
+                    out.writeByte(DELTA_REMOVE);
+                } else if (oldValue instanceof ConfigObject && newValue instanceof ConfigObject) {
+                    out.writeByte(DELTA_PATCH);
+                    writeObjectDelta((ConfigObject) oldValue, (ConfigObject) newValue);
+                } else {
+                    out.writeByte(DELTA_SET);
+                    writeValue(newValue, null /* parent */);
+                }
+            }
+        }
+    }
+
+    // lengths and counts come from the stream, which may be corrupt, so
+    // nothing is allocated for more than this up front; bigger strings and
+    // collections grow as their contents actually arrive
+    private static final int MAX_PRESIZE = 8192;
+
+    private static final class CompactReader {
+        final DataInput in;
+        final boolean includeOrigins;
+        final List<String> strings = new ArrayList<String>();
+        final List<SimpleConfigOrigin> origins = new ArrayList<SimpleConfigOrigin>();
+
+        CompactReader(DataInput in, boolean includeOrigins) {
+            this.in = in;
+            this.includeOrigins = includeOrigins;
+        }
+
+        String readString() throws IOException {
+            int n = readVarInt(in);
+            if (n == 0) {
+                return null;
+            } else if (n == 1) {
+                String s = new String(readBytes(readVarInt(in)), UTF8);
+                strings.add(s);
+                return s;
+            } else if (n - 2 < strings.size()) {
+                return strings.get(n - 2);
+            } else {
+                throw new IOException("Reference to unknown string " + (n - 2));
+            }
+        }
+
+        // reads length bytes without trusting length: past MAX_PRESIZE the
+        // array doubles as bytes arrive, so a corrupt length runs out of
+        // input rather than memory
+        byte[] readBytes(int length) throws IOException {
+            checkLength(length);
+            byte[] bytes = new byte[Math.min(length, MAX_PRESIZE)];
+            int read = 0;
+            while (true) {
+                in.readFully(bytes, read, bytes.length - read);
+                read = bytes.length;
+                if (read == length)
+                    return bytes;
+                bytes = Arrays.copyOf(bytes, (int) Math.min((long) read * 2, length));
+            }
+        }
+
+        // every element takes at least a byte, so a count is also a length
+        private void checkLength(int length) throws IOException {
+            if (in instanceof ByteBufferDataInput)
+                ((ByteBufferDataInput) in).checkLength(length);
+        }
+
+        SimpleConfigOrigin readOrigin() throws IOException {
+            Map<SerializedField, Object> m = new EnumMap<SerializedField, Object>(SerializedField.class);
+            String description = readString();
+            if (description == null)
+                throw new IOException("Origin has no description");
+            m.put(SerializedField.ORIGIN_DESCRIPTION, description);
+            int line = readVarInt(in) - 1;
+            if (line >= 0)
+                m.put(SerializedField.ORIGIN_LINE_NUMBER, line);
+            int endLine = readVarInt(in) - 1;
+            if (endLine >= 0)
+                m.put(SerializedField.ORIGIN_END_LINE_NUMBER, endLine);
+            int type = in.readUnsignedByte();
+            if (type >= OriginType.values().length)
+                throw new IOException("Unknown origin type " + type);
+            m.put(SerializedField.ORIGIN_TYPE, type);
+            String url = readString();
+            if (url != null)
+                m.put(SerializedField.ORIGIN_URL, url);
+            int commentCount = readVarInt(in);
+            if (commentCount > 0) {
+                checkLength(commentCount - 1);
+                List<String> comments = new ArrayList<String>(Math.min(commentCount - 1, MAX_PRESIZE));
+                for (int i = 0; i < commentCount - 1; ++i)
+                    comments.add(readString());
+                m.put(SerializedField.ORIGIN_COMMENTS, comments);
+            }
+            return SimpleConfigOrigin.fromFields(m);
+        }
+
+        SimpleConfigOrigin readOriginRef(SimpleConfigOrigin parent) throws IOException {
+            int n = readVarInt(in);
+            if (n == 0) {
+                if (parent == null)
+                    throw new IOException("Root value has no origin");
+                return parent;
+            } else if (n == 1) {
+                SimpleConfigOrigin origin = readOrigin();
+                origins.add(origin);
+                return origin;
+            } else if (n - 2 < origins.size()) {
+                return origins.get(n - 2);
+            } else {
+                throw new IOException("Reference to unknown origin " + (n - 2));
+            }
+        }
+
+        AbstractConfigValue readValue(SimpleConfigOrigin parent) throws IOException {
+            int b = in.readUnsignedByte();
+            boolean hasText = (b & COMPACT_HAS_TEXT) != 0;
+            SerializedValueType st = SerializedValueType.forInt(b & ~COMPACT_HAS_TEXT);
+            if (st == null)
+                throw new IOException("Unknown serialized value type: " + b);
+            SimpleConfigOrigin origin = includeOrigins ? readOriginRef(parent) : parent;
+
+            switch (st) {
+            case BOOLEAN:
+                return new ConfigBoolean(origin, in.readBoolean());
+            case NULL:
+                return new ConfigNull(origin);
+            case INT:
+                int vi = (int) unZigZag(readVarLong(in));
+                return new ConfigInt(origin, vi, hasText ? readString() : null);
+            case LONG:
+                long vl = unZigZag(readVarLong(in));
+                return new ConfigLong(origin, vl, hasText ? readString() : null);
+            case DOUBLE:
+                double vd = in.readDouble();
+                return new ConfigDouble(origin, vd, hasText ? readString() : null);
+            case STRING:
+                return new ConfigString(origin, readString());
+            case LIST:
+                int listSize = readVarInt(in);
+                checkLength(listSize);
+                List<AbstractConfigValue> list = new ArrayList<AbstractConfigValue>(
+                        Math.min(listSize, MAX_PRESIZE));
+                for (int i = 0; i < listSize; ++i) {
+                    list.add(readValue(origin));
+                }
+                // everything we write is resolved
+                return new SimpleConfigList(origin, list, ResolveStatus.RESOLVED);
+            case OBJECT:
+                int mapSize = readVarInt(in);
+                checkLength(mapSize);
+                Map<String, AbstractConfigValue> map = new HashMap<String, AbstractConfigValue>(
+                        Math.min(mapSize, MAX_PRESIZE));
+                for (int i = 0; i < mapSize; ++i) {
+                    String key = readString();
+                    if (key == null)
+                        throw new IOException("Object has a null key");
+                    map.put(key, readValue(origin));
+                }
+                return new SimpleConfigObject(origin, map, ResolveStatus.RESOLVED,
+                        false /* ignoresFallbacks */);
+            }
+            throw new IOException("Unhandled serialized value type: " + st);
+        }
+
+        AbstractConfigObject readObjectDelta(AbstractConfigObject base) throws IOException {
+            int changes = readVarInt(in);
+            if (changes == 0)
+                return base;
+            Map<String, AbstractConfigValue> map = new HashMap<String, AbstractConfigValue>();
+            for (String key : base.keySet()) {
+                map.put(key, base.get(key));
+            }
+            for (int i = 0; i < changes; ++i) {
+                String key = readString();
+                int op = in.readUnsignedByte();
+                if (op == DELTA_REMOVE) {
+                    if (map.remove(key) == null)
+                        throw new IOException("Delta removes missing key " + key);
+                } else if (op == DELTA_SET) {
+                    map.put(key, readValue(null /* parent */));
+                } else if (op == DELTA_PATCH) {
+                    AbstractConfigValue child = map.get(key);
+                    if (!(child instanceof AbstractConfigObject))
+                        throw new IOException("Delta patches non-object at key " + key);
+                    map.put(key, readObjectDelta((AbstractConfigObject) child));
+                } else {
+                    throw new IOException("Unknown delta operation " + op);
+                }
+            }
+            return new SimpleConfigObject(base.origin(), map, ResolveStatus.RESOLVED,
+                    false /* ignoresFallbacks */);
+        }
+    }
+
+    // A delta is the changes that turn one resolved config into another,
+    // much as SimpleConfigOrigin.fieldsDelta() only keeps the fields that
+    // differ from a parent origin. Values are compared with equals(), so
+    // only values that really changed are written, with their origins in
+    // the compact format; values that didn't change keep the origins they
+    // have in the config the delta is applied to. Layout:
+    //
+    // root: varint version, int hash of the old root, int hash of the new
+    // root, object delta
+    // object delta: varint number of changes, then for each a string ref
+    // key and byte op: DELTA_REMOVE, DELTA_SET and a value, or DELTA_PATCH
+    // and an object delta for a child object present in both
+    private static final int DELTA_REMOVE = 0;
+    private static final int DELTA_SET = 1;
+    private static final int DELTA_PATCH = 2;
+
+    // writes the ROOT_DELTA code and everything after it
+    static void writeDelta(DataOutput out, AbstractConfigObject oldRoot,
+            AbstractConfigObject newRoot) throws IOException {
+        if (oldRoot.resolveStatus() != ResolveStatus.RESOLVED
+                || newRoot.resolveStatus() != ResolveStatus.RESOLVED)
+            throw new NotSerializableException(
+                    "tried to serialize a value with unresolved substitutions, need to Config#resolve() first, see API docs");
+        out.writeByte(SerializedField.ROOT_DELTA.ordinal());
+        writeVarLong(out, COMPACT_VERSION);
+        out.writeInt(oldRoot.hashCode());
+        out.writeInt(newRoot.hashCode());
+        new CompactWriter(out, true /* includeOrigins */).writeObjectDelta(oldRoot, newRoot);
+    }
+
+    // applies what writeDelta() wrote to a config equal to its old root
+    static AbstractConfigObject readDelta(DataInput in, AbstractConfigObject base)
+            throws IOException {
+        SerializedField code = readCode(in);
+        if (code != SerializedField.ROOT_DELTA)
+            throw new IOException("Not a config delta, starts with " + code);
+        int version = readVarInt(in);
+        if (version != COMPACT_VERSION)
+            throw new IOException("Unknown compact serialization version " + version);
+        int oldHash = in.readInt();
+        int newHash = in.readInt();
+        if (base.hashCode() != oldHash)
+            throw new ConfigException.Generic(
+                    "config delta was made from a different config than the one it's applied to");
+        AbstractConfigObject result = new CompactReader(in, true /* includeOrigins */)
+                .readObjectDelta(base);
+        if (result.hashCode() != newHash)
+            throw new IOException("Config delta is corrupt, result does not match");
+        return result;
+    }
+
+    private static void writeVarLong(DataOutput out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        long v = readVarLong(in);
+        if (v < 0 || v > Integer.MAX_VALUE)
+            throw new IOException("Varint out of range: " + v);
+        return (int) v;
+    }
+
+    private static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    // writes the ROOT_COMPACT code and everything after it
+    static void writeCompact(DataOutput out, ConfigValue value, boolean wasConfig,
+            boolean includeOrigins) throws IOException {
         if (((AbstractConfigValue) value).resolveStatus() != ResolveStatus.RESOLVED)
             throw new NotSerializableException(
                     "tried to serialize a value with unresolved substitutions, need to Config#resolve() first, see API docs");
-        FieldOut field = new FieldOut(SerializedField.ROOT_VALUE);
-        writeValue(field.data, value, null /* baseOrigin */);
-        writeField(out, field);
+        out.writeByte(SerializedField.ROOT_COMPACT.ordinal());
+        writeVarLong(out, COMPACT_VERSION);
+        out.writeByte((wasConfig ? COMPACT_WAS_CONFIG : 0) | (includeOrigins ? COMPACT_ORIGINS : 0));
+        CompactWriter writer = new CompactWriter(out, includeOrigins);
+        if (!includeOrigins)
+            writer.writeOrigin((SimpleConfigOrigin) value.origin());
+        writer.writeValue(value, null /* parent */);
+    }
 
-        field = new FieldOut(SerializedField.ROOT_WAS_CONFIG);
-        field.data.writeBoolean(wasConfig);
-        writeField(out, field);
+    // reads what writeCompact() wrote, returning a Config if it was given one
+    static Object readCompact(DataInput in) throws IOException {
+        SerializedField code = readCode(in);
+        if (code != SerializedField.ROOT_COMPACT)
+            throw new IOException("Not a compact serialized config, starts with " + code);
+        SerializedConfigValue serialized = new SerializedConfigValue();
+        serialized.readCompactBody(in);
+        return serialized.readResolve();
+    }
 
-        writeEndMarker(out);
+    // reads what follows the ROOT_COMPACT code
+    private void readCompactBody(DataInput in) throws IOException {
+        int version = readVarInt(in);
+        if (version != COMPACT_VERSION)
+            throw new IOException("Unknown compact serialization version " + version);
+        int flags = in.readUnsignedByte();
+        CompactReader reader = new CompactReader(in, (flags & COMPACT_ORIGINS) != 0);
+        SimpleConfigOrigin origin = reader.includeOrigins ? null : reader.readOrigin();
+        this.value = reader.readValue(origin);
+        this.wasConfig = (flags & COMPACT_WAS_CONFIG) != 0;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        writeCompact(out, value, wasConfig, true /* includeOrigins */);
     }
 
     @Override
@@ -469,6 +889,9 @@ class SerializedConfigValue extends AbstractConfigValue implements Externalizabl
             SerializedField code = readCode(in);
             if (code == SerializedField.END_MARKER) {
                 return;
+            } else if (code == SerializedField.ROOT_COMPACT) {
+                readCompactBody(in);
+                return;
             } else if (code == SerializedField.ROOT_VALUE) {
                 in.readInt(); // discard length
                 this.value = readValue(in, null /* baseOrigin */);
@@ -0,0 +1,254 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.spongepowered.config.Config;
+import org.spongepowered.config.ConfigException;
+import org.spongepowered.config.ConfigResolveOptions;
+import org.spongepowered.config.ConfigValue;
+
+/**
+ * Resolves many configs of the form override.withFallback(base) while
+ * resolving the shared base only once.
+ *
+ * The base is resolved up front (allowing unresolved substitutions, since an
+ * override may be what supplies them). For each override we then work out
+ * which of the base's substitutions could see a different value because the
+ * override sets a path they depend on, directly or through another affected
+ * substitution. Only those values are put back into the resolved base in
+ * their original unresolved form before merging in the override, so the
+ * per-override resolve only has to look at the override itself and the
+ * affected parts of the base.
+ */
+final class SharedBaseResolver {
+
+    // a value in the base which has substitutions, and the paths they refer to
+    private static final class Dependent {
+        final Path path;
+        final AbstractConfigValue unresolved;
+        final List<Path> dependencies;
+
+        Dependent(Path path, AbstractConfigValue unresolved, List<Path> dependencies) {
+            this.path = path;
+            this.unresolved = unresolved;
+            this.dependencies = dependencies;
+        }
+    }
+
+    final private AbstractConfigObject base;
+    final private ConfigResolveOptions options;
+    // null if the base can't be resolved on its own
+    final private AbstractConfigObject resolvedBase;
+    final private List<Dependent> dependents;
+
+    SharedBaseResolver(AbstractConfigObject base, ConfigResolveOptions options) {
+        this.base = base;
+        this.options = options;
+
+        AbstractConfigObject resolved;
+        List<Dependent> found = new ArrayList<Dependent>();
+        if (base instanceof SimpleConfigObject) {
+            try {
+                resolved = (AbstractConfigObject) ResolveContext.resolve(base, base,
+                        options.setAllowUnresolved(true));
+                findDependents(found, null, base);
+            } catch (ConfigException e) {
+                // for example a cycle that the overrides might break;
+                // each override will have to resolve the whole thing.
+                resolved = null;
+            }
+        } else {
+            resolved = null;
+        }
+        this.resolvedBase = resolved;
+        this.dependents = found;
+    }
+
+    private static void findDependents(List<Dependent> found, Path parent, AbstractConfigObject obj) {
+        for (String key : obj.keySet()) {
+            AbstractConfigValue v = obj.get(key);
+            if (v.resolveStatus() == ResolveStatus.RESOLVED)
+                continue;
+            Path path = parent == null ? Path.newKey(key) : Path.newKey(key).prepend(parent);
+            if (v instanceof SimpleConfigObject) {
+                findDependents(found, path, (AbstractConfigObject) v);
+            } else {
+                List<Path> dependencies = new ArrayList<Path>();
+                findReferences(dependencies, v);
+                found.add(new Dependent(path, v, dependencies));
+            }
+        }
+    }
+
+    private static void findReferences(List<Path> dependencies, AbstractConfigValue v) {
+        if (v.resolveStatus() == ResolveStatus.RESOLVED)
+            return;
+
+        if (v instanceof ConfigReference) {
+            ConfigReference ref = (ConfigReference) v;
+            Path path = ref.expression().path();
+            dependencies.add(path);
+            // the unprefixed path is also tried when resolving
+            Path unprefixed = path.subPath(ref.prefixLength());
+            if (unprefixed != null && unprefixed != path)
+                dependencies.add(unprefixed);
+        } else if (v instanceof ConfigConcatenation) {
+            for (AbstractConfigValue piece : ((ConfigConcatenation) v).pieces())
+                findReferences(dependencies, piece);
+        } else if (v instanceof Unmergeable) {
+            for (AbstractConfigValue layer : ((Unmergeable) v).unmergedValues())
+                findReferences(dependencies, layer);
+        } else if (v instanceof SimpleConfigList) {
+            for (ConfigValue element : (SimpleConfigList) v)
+                findReferences(dependencies, (AbstractConfigValue) element);
+        } else if (v instanceof AbstractConfigObject) {
+            for (ConfigValue child : ((AbstractConfigObject) v).values())
+                findReferences(dependencies, (AbstractConfigValue) child);
+        } else {
+            throw new ConfigException.BugOrBroken("unexpected unresolved value " + v);
+        }
+    }
+
+    // all paths set by the override, down to its leaves
+    private static void findSetPaths(Set<Path> paths, Path parent, AbstractConfigObject obj) {
+        for (Map.Entry<String, ConfigValue> entry : obj.entrySet()) {
+            Path path = parent == null ? Path.newKey(entry.getKey()) : Path.newKey(
+                    entry.getKey()).prepend(parent);
+            if (entry.getValue() instanceof SimpleConfigObject
+                    && !((AbstractConfigObject) entry.getValue()).isEmpty())
+                findSetPaths(paths, path, (AbstractConfigObject) entry.getValue());
+            else
+                paths.add(path);
+        }
+    }
+
+    // true if one path is the same as or inside the other
+    private static boolean overlaps(Path a, Path b) {
+        while (a != null && b != null) {
+            if (!a.first().equals(b.first()))
+                return false;
+            a = a.remainder();
+            b = b.remainder();
+        }
+        return true;
+    }
+
+    private static boolean overlapsAny(Path path, Collection<Path> paths) {
+        for (Path p : paths) {
+            if (overlaps(path, p))
+                return true;
+        }
+        return false;
+    }
+
+    private AbstractConfigObject baseFor(AbstractConfigObject override) {
+        Set<Path> changed = new HashSet<Path>();
+        if (override instanceof SimpleConfigObject)
+            findSetPaths(changed, null, override);
+        else
+            return base;
+
+        List<Dependent> remaining = new ArrayList<Dependent>(dependents);
+        List<Dependent> affected = new ArrayList<Dependent>();
+        boolean grew = true;
+        while (grew) {
+            grew = false;
+            for (int i = 0; i < remaining.size(); ++i) {
+                Dependent d = remaining.get(i);
+                for (Path dependency : d.dependencies) {
+                    if (overlapsAny(dependency, changed)) {
+                        affected.add(d);
+                        changed.add(d.path);
+                        remaining.remove(i);
+                        i -= 1;
+                        grew = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        AbstractConfigObject patched = resolvedBase;
+        for (Dependent d : affected) {
+            patched = patched.withValue(d.path, d.unresolved);
+        }
+        return patched;
+    }
+
+    Config resolve(Config override) {
+        AbstractConfigObject overrideRoot = ((SimpleConfig) override).root();
+        AbstractConfigObject fallback = resolvedBase != null ? baseFor(overrideRoot) : base;
+        AbstractConfigObject merged = overrideRoot.withFallback(fallback);
+        return merged.toConfig().resolve(options);
+    }
+
+    List<Config> resolveAll(List<? extends Config> overrides) {
+        int threads = Math.min(overrides.size(), Runtime.getRuntime().availableProcessors());
+        List<Config> results = new ArrayList<Config>(overrides.size());
+        if (threads <= 1) {
+            for (Config override : overrides)
+                results.add(resolve(override));
+            return results;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Config>> futures = new ArrayList<Future<Config>>(overrides.size());
+            for (final Config override : overrides) {
+                futures.add(executor.submit(new Callable<Config>() {
+                    @Override
+                    public Config call() {
+                        return resolve(override);
+                    }
+                }));
+            }
+            for (Future<Config> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    else if (cause instanceof Error)
+                        throw (Error) cause;
+                    else
+                        throw new ConfigException.BugOrBroken("unexpected exception resolving", cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ConfigException.Generic("interrupted while resolving", e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+}
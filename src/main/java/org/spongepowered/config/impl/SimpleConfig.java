@@ -36,6 +36,7 @@ import org.spongepowered.config.ConfigMergeable;
 import org.spongepowered.config.ConfigObject;
 import org.spongepowered.config.ConfigOrigin;
 import org.spongepowered.config.ConfigResolveOptions;
+import org.spongepowered.config.ConfigResolveSource;
 import org.spongepowered.config.ConfigValue;
 import org.spongepowered.config.ConfigValueType;
 
@@ -90,6 +91,27 @@ final class SimpleConfig implements Config, MergeableValue, Serializable {
             return new SimpleConfig((AbstractConfigObject) resolved);
     }
 
+    @Override
+    public SimpleConfigResolveSource asResolveSource() {
+        return new SimpleConfigResolveSource(this);
+    }
+
+    @Override
+    public SimpleConfig resolveWith(ConfigResolveSource source) {
+        return resolveWith(source, ConfigResolveOptions.defaults());
+    }
+
+    @Override
+    public SimpleConfig resolveWith(ConfigResolveSource source, ConfigResolveOptions options) {
+        AbstractConfigValue resolved = ResolveContext.resolve(object,
+                ((SimpleConfigResolveSource) source).newResolveSource(), options);
+
+        if (resolved == object)
+            return this;
+        else
+            return new SimpleConfig((AbstractConfigObject) resolved);
+    }
+
     @Override
     public boolean hasPath(String pathExpression) {
         Path path = Path.newPath(pathExpression);
@@ -208,12 +230,12 @@ final class SimpleConfig implements Config, MergeableValue, Serializable {
 
     @Override
     public long getLong(String path) {
-        return getNumber(path).longValue();
+        return getConfigNumber(path).longValue();
     }
 
     @Override
     public double getDouble(String path) {
-        return getNumber(path).doubleValue();
+        return getConfigNumber(path).doubleValue();
     }
 
     @Override
@@ -247,11 +269,39 @@ final class SimpleConfig implements Config, MergeableValue, Serializable {
 
     @Override
     public Long getBytes(String path) {
+        Path p = Path.newPath(path);
+        AbstractConfigValue raw;
+        try {
+            raw = object.peekPath(p);
+        } catch (ConfigException.NotResolved e) {
+            throw ConfigImpl.improveNotResolved(p, e);
+        }
+
+        // the usual cases, a number or a string, straight from the value we
+        // just found; a size like "10K" is parsed once and then kept on the
+        // string
+        if (raw instanceof ConfigNumber)
+            return ((ConfigNumber) raw).longValue();
+        if (raw instanceof ConfigString) {
+            ConfigString s = (ConfigString) raw;
+            Long cached = s.parsedQuantity(true /* isBytes */);
+            if (cached != null)
+                return cached;
+            AbstractConfigValue n = DefaultTransformer.transform(s, ConfigValueType.NUMBER);
+            if (n instanceof ConfigNumber)
+                return ((ConfigNumber) n).longValue();
+            Long size = parseBytes(s.unwrapped(), s.origin(), path);
+            s.rememberQuantity(true /* isBytes */, size);
+            return size;
+        }
+
+        // missing, null, or another type: the errors and conversions of
+        // getLong() and then getString()
         Long size = null;
         try {
-            size = getLong(path);
+            size = ((ConfigNumber) find(p, ConfigValueType.NUMBER, p)).longValue();
         } catch (ConfigException.WrongType e) {
-            ConfigValue v = find(path, ConfigValueType.STRING);
+            ConfigValue v = find(p, ConfigValueType.STRING, p);
             size = parseBytes((String) v.unwrapped(),
                     v.origin(), path);
         }
@@ -272,10 +322,14 @@ final class SimpleConfig implements Config, MergeableValue, Serializable {
 
     @Override
     public long getDuration(String path, TimeUnit unit) {
-        ConfigValue v = find(path, ConfigValueType.STRING);
-        long result = unit.convert(
-                       parseDuration((String) v.unwrapped(), v.origin(), path),
-                       TimeUnit.NANOSECONDS);
+        ConfigString v = (ConfigString) find(path, ConfigValueType.STRING);
+        // parsed once per value, then kept on the string
+        Long nanos = v.parsedQuantity(false /* isBytes */);
+        if (nanos == null) {
+            nanos = parseDuration(v.unwrapped(), v.origin(), path);
+            v.rememberQuantity(false /* isBytes */, nanos);
+        }
+        long result = unit.convert(nanos, TimeUnit.NANOSECONDS);
         return result;
     }
 
@@ -312,7 +366,14 @@ final class SimpleConfig implements Config, MergeableValue, Serializable {
     @Override
     public List<Integer> getIntList(String path) {
         List<Integer> l = new ArrayList<Integer>();
-        List<AbstractConfigValue> numbers = getHomogeneousWrappedList(path, ConfigValueType.NUMBER);
+        SimpleConfigList list = (SimpleConfigList) getList(path);
+        int[] ints = list.numbers() != null ? list.numbers().toIntArray() : null;
+        if (ints != null) {
+            for (int i : ints)
+                l.add(i);
+            return l;
+        }
+        List<AbstractConfigValue> numbers = getHomogeneousWrappedList(path, list, ConfigValueType.NUMBER);
         for (AbstractConfigValue v : numbers) {
             l.add(((ConfigNumber) v).intValueRangeChecked(path));
         }
@@ -322,6 +383,13 @@ final class SimpleConfig implements Config, MergeableValue, Serializable {
     @Override
     public List<Long> getLongList(String path) {
         List<Long> l = new ArrayList<Long>();
+        SimpleConfigList list = (SimpleConfigList) getList(path);
+        long[] longs = list.numbers() != null ? list.numbers().toLongArray() : null;
+        if (longs != null) {
+            for (long n : longs)
+                l.add(n);
+            return l;
+        }
         List<Number> numbers = getNumberList(path);
         for (Number n : numbers) {
             l.add(n.longValue());
@@ -332,6 +400,12 @@ final class SimpleConfig implements Config, MergeableValue, Serializable {
     @Override
     public List<Double> getDoubleList(String path) {
         List<Double> l = new ArrayList<Double>();
+        SimpleConfigList list = (SimpleConfigList) getList(path);
+        if (list.numbers() != null) {
+            for (double n : list.numbers().toDoubleArray())
+                l.add(n);
+            return l;
+        }
         List<Number> numbers = getNumberList(path);
         for (Number n : numbers) {
             l.add(n.doubleValue());
@@ -339,6 +413,51 @@ final class SimpleConfig implements Config, MergeableValue, Serializable {
         return l;
     }
 
+    @Override
+    public int[] getIntArray(String path) {
+        SimpleConfigList list = (SimpleConfigList) getList(path);
+        if (list.numbers() != null) {
+            int[] a = list.numbers().toIntArray();
+            if (a != null)
+                return a;
+        }
+        List<AbstractConfigValue> numbers = getHomogeneousWrappedList(path, list, ConfigValueType.NUMBER);
+        int[] a = new int[numbers.size()];
+        for (int i = 0; i < a.length; ++i) {
+            a[i] = ((ConfigNumber) numbers.get(i)).intValueRangeChecked(path);
+        }
+        return a;
+    }
+
+    @Override
+    public long[] getLongArray(String path) {
+        SimpleConfigList list = (SimpleConfigList) getList(path);
+        if (list.numbers() != null) {
+            long[] a = list.numbers().toLongArray();
+            if (a != null)
+                return a;
+        }
+        List<AbstractConfigValue> numbers = getHomogeneousWrappedList(path, list, ConfigValueType.NUMBER);
+        long[] a = new long[numbers.size()];
+        for (int i = 0; i < a.length; ++i) {
+            a[i] = ((ConfigNumber) numbers.get(i)).longValue();
+        }
+        return a;
+    }
+
+    @Override
+    public double[] getDoubleArray(String path) {
+        SimpleConfigList list = (SimpleConfigList) getList(path);
+        if (list.numbers() != null)
+            return list.numbers().toDoubleArray();
+        List<AbstractConfigValue> numbers = getHomogeneousWrappedList(path, list, ConfigValueType.NUMBER);
+        double[] a = new double[numbers.size()];
+        for (int i = 0; i < a.length; ++i) {
+            a[i] = ((ConfigNumber) numbers.get(i)).doubleValue();
+        }
+        return a;
+    }
+
     @Override
     public List<String> getStringList(String path) {
         return getHomogeneousUnwrappedList(path, ConfigValueType.STRING);
@@ -347,8 +466,13 @@ final class SimpleConfig implements Config, MergeableValue, Serializable {
     @SuppressWarnings("unchecked")
     private <T extends ConfigValue> List<T> getHomogeneousWrappedList(
             String path, ConfigValueType expected) {
+        return getHomogeneousWrappedList(path, getList(path), expected);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends ConfigValue> List<T> getHomogeneousWrappedList(
+            String path, List<? extends ConfigValue> list, ConfigValueType expected) {
         List<T> l = new ArrayList<T>();
-        List<? extends ConfigValue> list = getList(path);
         for (ConfigValue cv : list) {
             // variance would be nice, but stupid cast will do
             AbstractConfigValue v = (AbstractConfigValue) cv;
@@ -448,7 +572,7 @@ final class SimpleConfig implements Config, MergeableValue, Serializable {
 
     @Override
     public AbstractConfigObject toFallbackValue() {
-        return object;
+        return object.toFallbackValue();
     }
 
     @Override
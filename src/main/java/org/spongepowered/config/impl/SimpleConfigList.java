@@ -33,12 +33,16 @@ import org.spongepowered.config.ConfigRenderOptions;
 import org.spongepowered.config.ConfigValue;
 import org.spongepowered.config.ConfigValueType;
 
-final class SimpleConfigList extends AbstractConfigValue implements ConfigList, Serializable {
+final class SimpleConfigList extends AbstractConfigValue implements ConfigList, RenderMemo.Owner, Serializable {
 
     private static final long serialVersionUID = 2L;
 
     final private List<AbstractConfigValue> value;
     final private boolean resolved;
+    // computed on first use since we're immutable; 0 means not yet
+    private transient int hashCode;
+    // the latest renderings, see RenderMemo
+    private transient RenderMemo renderMemo;
 
     SimpleConfigList(ConfigOrigin origin, List<AbstractConfigValue> value) {
         this(origin, value, ResolveStatus
@@ -48,7 +52,7 @@ final class SimpleConfigList extends AbstractConfigValue implements ConfigList,
     SimpleConfigList(ConfigOrigin origin, List<AbstractConfigValue> value,
             ResolveStatus status) {
         super(origin);
-        this.value = value;
+        this.value = PrimitiveNumberList.compact(value);
         this.resolved = status == ResolveStatus.RESOLVED;
 
         // kind of an expensive debug check (makes this constructor pointless)
@@ -71,6 +75,11 @@ final class SimpleConfigList extends AbstractConfigValue implements ConfigList,
         return list;
     }
 
+    // the elements as primitives if this is a compact list of numbers, or null
+    PrimitiveNumberList numbers() {
+        return value instanceof PrimitiveNumberList ? (PrimitiveNumberList) value : null;
+    }
+
     @Override
     ResolveStatus resolveStatus() {
         return ResolveStatus.fromBoolean(resolved);
@@ -167,9 +176,12 @@ final class SimpleConfigList extends AbstractConfigValue implements ConfigList,
     @Override
     public boolean equals(Object other) {
         // note that "origin" is deliberately NOT part of equality
-        if (other instanceof SimpleConfigList) {
+        if (other == this) {
+            return true;
+        } else if (other instanceof SimpleConfigList) {
             // optimization to avoid unwrapped() for two ConfigList
-            return canEqual(other) && value.equals(((SimpleConfigList) other).value);
+            return canEqual(other) && hashCode() == other.hashCode()
+                    && value.equals(((SimpleConfigList) other).value);
         } else {
             return false;
         }
@@ -178,18 +190,53 @@ final class SimpleConfigList extends AbstractConfigValue implements ConfigList,
     @Override
     public int hashCode() {
         // note that "origin" is deliberately NOT part of equality
-        return value.hashCode();
+        // benign race, like String.hashCode()
+        int h = hashCode;
+        if (h == 0) {
+            h = value.hashCode();
+            hashCode = h;
+        }
+        return h;
+    }
+
+    @Override
+    protected void render(RenderBuffer sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+        String memoized = RenderMemo.get(this, indent, atRoot, options);
+        if (memoized != null) {
+            sb.append(memoized);
+        } else {
+            sb.mark();
+            renderUncached(sb, indent, atRoot, options);
+            sb.memoizeSinceMark(this, indent, atRoot, options);
+        }
+    }
+
+    @Override
+    public RenderMemo renderMemo() {
+        return renderMemo;
     }
 
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    public void setRenderMemo(RenderMemo memo) {
+        renderMemo = memo;
+    }
+
+    private void renderUncached(RenderBuffer sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         if (value.isEmpty()) {
             sb.append("[]");
         } else {
             sb.append("[");
             if (options.getFormatted())
                 sb.append('\n');
+            boolean first = true;
             for (AbstractConfigValue v : value) {
+                if (first) {
+                    first = false;
+                } else {
+                    sb.append(",");
+                    if (options.getFormatted())
+                        sb.append('\n');
+                }
                 if (options.getOriginComments()) {
                     indent(sb, indent + 1, options);
                     sb.append("# ");
@@ -207,13 +254,8 @@ final class SimpleConfigList extends AbstractConfigValue implements ConfigList,
                 indent(sb, indent + 1, options);
 
                 v.render(sb, indent + 1, atRoot, options);
-                sb.append(",");
-                if (options.getFormatted())
-                    sb.append('\n');
             }
-            sb.setLength(sb.length() - 1); // chop or newline
             if (options.getFormatted()) {
-                sb.setLength(sb.length() - 1); // also chop comma
                 sb.append('\n');
                 indent(sb, indent, options);
             }
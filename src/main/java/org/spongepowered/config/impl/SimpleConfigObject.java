@@ -37,7 +37,7 @@ import org.spongepowered.config.ConfigOrigin;
 import org.spongepowered.config.ConfigRenderOptions;
 import org.spongepowered.config.ConfigValue;
 
-final class SimpleConfigObject extends AbstractConfigObject implements Serializable {
+final class SimpleConfigObject extends AbstractConfigObject implements RenderMemo.Owner, Serializable {
 
     private static final long serialVersionUID = 2L;
 
@@ -45,6 +45,12 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
     final private Map<String, AbstractConfigValue> value;
     final private boolean resolved;
     final private boolean ignoresFallbacks;
+    // computed on first use since we're immutable; 0 means not yet
+    private transient int hashCode;
+    // the keys in render order, kept for larger objects
+    private transient List<String> sortedKeys;
+    // the latest renderings, see RenderMemo
+    private transient RenderMemo renderMemo;
 
     SimpleConfigObject(ConfigOrigin origin,
             Map<String, AbstractConfigValue> value, ResolveStatus status,
@@ -276,6 +282,63 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
             return this;
     }
 
+    // the equivalent of stack[0].withFallback(stack[1]).withFallback(...)
+    // where only the last object may ignore fallbacks; each key's values are
+    // merged in one go, so we build one object rather than one per fallback.
+    static SimpleConfigObject mergeObjects(List<SimpleConfigObject> stack) {
+        SimpleConfigObject first = stack.get(0);
+        SimpleConfigObject last = stack.get(stack.size() - 1);
+        if (stack.size() == 2)
+            return first.mergedWithObject(last);
+
+        boolean changed = false;
+        boolean allResolved = true;
+        Map<String, AbstractConfigValue> merged = new HashMap<String, AbstractConfigValue>();
+        for (int i = 0; i < stack.size(); ++i) {
+            for (Map.Entry<String, AbstractConfigValue> entry : stack.get(i).value.entrySet()) {
+                String key = entry.getKey();
+                if (merged.containsKey(key))
+                    continue;
+
+                AbstractConfigValue firstValue = entry.getValue();
+                List<AbstractConfigValue> values = null;
+                if (!firstValue.ignoresFallbacks()) {
+                    for (int j = i + 1; j < stack.size(); ++j) {
+                        AbstractConfigValue v = stack.get(j).value.get(key);
+                        if (v != null) {
+                            if (values == null) {
+                                values = new ArrayList<AbstractConfigValue>();
+                                values.add(firstValue);
+                            }
+                            values.add(v);
+                        }
+                    }
+                }
+                AbstractConfigValue kept = values != null ? mergeAll(values) : firstValue;
+
+                merged.put(key, kept);
+
+                if (i != 0 || kept != firstValue)
+                    changed = true;
+
+                if (kept.resolveStatus() == ResolveStatus.UNRESOLVED)
+                    allResolved = false;
+            }
+        }
+
+        ResolveStatus newResolveStatus = ResolveStatus.fromBoolean(allResolved);
+        boolean newIgnoresFallbacks = last.ignoresFallbacks();
+
+        if (changed)
+            return new SimpleConfigObject(mergeOrigins(stack), merged, newResolveStatus,
+                    newIgnoresFallbacks);
+        else if (newResolveStatus != first.resolveStatus()
+                || newIgnoresFallbacks != first.ignoresFallbacks())
+            return first.newCopy(newResolveStatus, first.origin(), newIgnoresFallbacks);
+        else
+            return first;
+    }
+
     private SimpleConfigObject modify(NoExceptionsModifier modifier) {
         try {
             return modifyMayThrow(modifier);
@@ -379,8 +442,45 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
         });
     }
 
+    // keys sorted as they render; the list of a larger object is kept, it
+    // doesn't change since we're immutable
+    List<String> sortedKeys() {
+        List<String> keys = sortedKeys;
+        if (keys == null) {
+            String[] sorted = keySet().toArray(new String[size()]);
+            Arrays.sort(sorted);
+            // Arrays.asList is backed by a final field, so other threads
+            // see the sorted array even though the cache is racy
+            keys = Arrays.asList(sorted);
+            if (sorted.length >= 16)
+                sortedKeys = keys;
+        }
+        return keys;
+    }
+
+    @Override
+    protected void render(RenderBuffer sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+        String memoized = RenderMemo.get(this, indent, atRoot, options);
+        if (memoized != null) {
+            sb.append(memoized);
+        } else {
+            sb.mark();
+            renderUncached(sb, indent, atRoot, options);
+            sb.memoizeSinceMark(this, indent, atRoot, options);
+        }
+    }
+
     @Override
-    protected void render(StringBuilder sb, int indent, boolean atRoot, ConfigRenderOptions options) {
+    public RenderMemo renderMemo() {
+        return renderMemo;
+    }
+
+    @Override
+    public void setRenderMemo(RenderMemo memo) {
+        renderMemo = memo;
+    }
+
+    private void renderUncached(RenderBuffer sb, int indent, boolean atRoot, ConfigRenderOptions options) {
         if (isEmpty()) {
             sb.append("{}");
         } else {
@@ -397,13 +497,23 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
                 innerIndent = indent;
             }
 
-            int separatorCount = 0;
-            String[] keys = keySet().toArray(new String[size()]);
-            Arrays.sort(keys);
-            for (String k : keys) {
+            boolean first = true;
+            for (String k : sortedKeys()) {
                 AbstractConfigValue v;
                 v = value.get(k);
 
+                // separators go before each value after the first, rather
+                // than after each value and chopped from the last
+                if (first) {
+                    first = false;
+                } else if (options.getFormatted()) {
+                    if (options.getJson())
+                        sb.append(",");
+                    sb.append('\n');
+                } else {
+                    sb.append(",");
+                }
+
                 if (options.getOriginComments()) {
                     indent(sb, innerIndent, options);
                     sb.append("# ");
@@ -422,26 +532,11 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
                 }
                 indent(sb, innerIndent, options);
                 v.render(sb, innerIndent, false /* atRoot */, k, options);
-
-                if (options.getFormatted()) {
-                    if (options.getJson()) {
-                        sb.append(",");
-                        separatorCount = 2;
-                    } else {
-                        separatorCount = 1;
-                    }
-                    sb.append('\n');
-                } else {
-                    sb.append(",");
-                    separatorCount = 1;
-                }
             }
-            // chop last commas/newlines
-            sb.setLength(sb.length() - separatorCount);
 
             if (outerBraces) {
                 if (options.getFormatted()) {
-                    sb.append('\n'); // put a newline back
+                    sb.append('\n');
                     if (outerBraces)
                         indent(sb, indent, options);
                 }
@@ -457,7 +552,7 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
         return value.get(key);
     }
 
-    private static boolean mapEquals(Map<String, ConfigValue> a, Map<String, ConfigValue> b) {
+    static boolean mapEquals(Map<String, ConfigValue> a, Map<String, ConfigValue> b) {
         Set<String> aKeys = a.keySet();
         Set<String> bKeys = b.keySet();
 
@@ -471,7 +566,7 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
         return true;
     }
 
-    private static int mapHash(Map<String, ConfigValue> m) {
+    static int mapHash(Map<String, ConfigValue> m) {
         // the keys have to be sorted, otherwise we could be equal
         // to another map but have a different hashcode.
         List<String> keys = new ArrayList<String>();
@@ -494,7 +589,13 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
     public boolean equals(Object other) {
         // note that "origin" is deliberately NOT part of equality.
         // neither are other "extras" like ignoresFallbacks or resolve status.
-        if (other instanceof ConfigObject) {
+        if (other == this) {
+            return true;
+        } else if (other instanceof SimpleConfigObject && hashCode() != other.hashCode()) {
+            // hashes are cached all the way down, so after the first time
+            // this is much cheaper than comparing
+            return false;
+        } else if (other instanceof ConfigObject) {
             // optimization to avoid unwrapped() for two ConfigObject,
             // which is what AbstractConfigValue does.
             return canEqual(other) && mapEquals(this, ((ConfigObject) other));
@@ -507,7 +608,13 @@ final class SimpleConfigObject extends AbstractConfigObject implements Serializa
     public int hashCode() {
         // note that "origin" is deliberately NOT part of equality
         // neither are other "extras" like ignoresFallbacks or resolve status.
-        return mapHash(this);
+        // benign race, like String.hashCode()
+        int h = hashCode;
+        if (h == 0) {
+            h = mapHash(this);
+            hashCode = h;
+        }
+        return h;
     }
 
     @Override
@@ -23,10 +23,10 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -44,6 +44,18 @@ final class SimpleConfigOrigin implements ConfigOrigin {
     final private String urlOrNull;
     final private List<String> commentsOrNull;
 
+    // A merged origin is usually never looked at, so rather than building
+    // "merge of" strings and comment lists on every withFallback() we just
+    // remember what was merged; the fields above are unused (null/-1, a
+    // null description is how to tell) and strictOrNull is filled in the
+    // first time anyone asks. Once it is, mergedFromOrNull is dropped so
+    // the merged origins can be collected. strictOrNull is always set
+    // before mergedFromOrNull is cleared, so seeing a null
+    // mergedFromOrNull means strictOrNull is there.
+    private volatile List<SimpleConfigOrigin> mergedFromOrNull;
+    // benign race, computing it twice gives an equal result
+    private volatile SimpleConfigOrigin strictOrNull;
+
     protected SimpleConfigOrigin(String description, int lineNumber, int endLineNumber,
             OriginType originType, String urlOrNull, List<String> commentsOrNull) {
         if (description == null)
@@ -54,6 +66,58 @@ final class SimpleConfigOrigin implements ConfigOrigin {
         this.originType = originType;
         this.urlOrNull = urlOrNull;
         this.commentsOrNull = commentsOrNull;
+        this.mergedFromOrNull = null;
+    }
+
+    private SimpleConfigOrigin(List<SimpleConfigOrigin> mergedFrom) {
+        this.description = null;
+        this.lineNumber = -1;
+        this.endLineNumber = -1;
+        this.originType = null;
+        this.urlOrNull = null;
+        this.commentsOrNull = null;
+        this.mergedFromOrNull = mergedFrom;
+    }
+
+    private boolean isLazyMerge() {
+        return description == null;
+    }
+
+    // returns an origin with all fields filled in, which is "this" unless
+    // this is a lazy merge.
+    private SimpleConfigOrigin strict() {
+        if (!isLazyMerge())
+            return this;
+        SimpleConfigOrigin s = strictOrNull;
+        if (s != null)
+            return s;
+
+        // a long chain of withFallback() nests lazy merges deeply, so
+        // force them bottom-up with our own stack instead of recursing.
+        List<SimpleConfigOrigin> pending = new ArrayList<SimpleConfigOrigin>();
+        pending.add(this);
+        while (!pending.isEmpty()) {
+            SimpleConfigOrigin o = pending.get(pending.size() - 1);
+            List<SimpleConfigOrigin> mergedFrom = o.mergedFromOrNull;
+            boolean ready = true;
+            if (mergedFrom != null) {
+                for (SimpleConfigOrigin from : mergedFrom) {
+                    if (from.mergedFromOrNull != null) {
+                        pending.add(from);
+                        ready = false;
+                    }
+                }
+            }
+            if (ready) {
+                pending.remove(pending.size() - 1);
+                // null if another thread forced it meanwhile
+                if (mergedFrom != null) {
+                    o.strictOrNull = mergeStrictly(mergedFrom);
+                    o.mergedFromOrNull = null;
+                }
+            }
+        }
+        return strictOrNull;
     }
 
     static SimpleConfigOrigin newSimple(String description) {
@@ -85,6 +149,8 @@ final class SimpleConfigOrigin implements ConfigOrigin {
     }
 
     SimpleConfigOrigin setLineNumber(int lineNumber) {
+        if (isLazyMerge())
+            return strict().setLineNumber(lineNumber);
         if (lineNumber == this.lineNumber && lineNumber == this.endLineNumber) {
             return this;
         } else {
@@ -94,11 +160,15 @@ final class SimpleConfigOrigin implements ConfigOrigin {
     }
 
     SimpleConfigOrigin addURL(URL url) {
+        if (isLazyMerge())
+            return strict().addURL(url);
         return new SimpleConfigOrigin(this.description, this.lineNumber, this.endLineNumber,
                 this.originType, url != null ? url.toExternalForm() : null, this.commentsOrNull);
     }
 
     SimpleConfigOrigin setComments(List<String> comments) {
+        if (isLazyMerge())
+            return strict().setComments(comments);
         if (ConfigImplUtil.equalsHandlingNull(comments, this.commentsOrNull)) {
             return this;
         } else {
@@ -108,6 +178,8 @@ final class SimpleConfigOrigin implements ConfigOrigin {
     }
 
     SimpleConfigOrigin prependComments(List<String> comments) {
+        if (isLazyMerge())
+            return strict().prependComments(comments);
         if (ConfigImplUtil.equalsHandlingNull(comments, this.commentsOrNull) || comments == null) {
             return this;
         } else if (this.commentsOrNull == null) {
@@ -122,6 +194,8 @@ final class SimpleConfigOrigin implements ConfigOrigin {
     }
 
     SimpleConfigOrigin appendComments(List<String> comments) {
+        if (isLazyMerge())
+            return strict().appendComments(comments);
         if (ConfigImplUtil.equalsHandlingNull(comments, this.commentsOrNull) || comments == null) {
             return this;
         } else if (this.commentsOrNull == null) {
@@ -139,7 +213,9 @@ final class SimpleConfigOrigin implements ConfigOrigin {
     public String description() {
         // not putting the URL in here for files and resources, because people
         // parsing "file: line" syntax would hit the ":" in the URL.
-        if (lineNumber < 0) {
+        if (isLazyMerge()) {
+            return strict().description();
+        } else if (lineNumber < 0) {
             return description;
         } else if (endLineNumber == lineNumber) {
             return description + ": " + lineNumber;
@@ -150,8 +226,10 @@ final class SimpleConfigOrigin implements ConfigOrigin {
 
     @Override
     public boolean equals(Object other) {
-        if (other instanceof SimpleConfigOrigin) {
-            SimpleConfigOrigin otherOrigin = (SimpleConfigOrigin) other;
+        if (isLazyMerge()) {
+            return strict().equals(other);
+        } else if (other instanceof SimpleConfigOrigin) {
+            SimpleConfigOrigin otherOrigin = ((SimpleConfigOrigin) other).strict();
 
             return this.description.equals(otherOrigin.description)
                     && this.lineNumber == otherOrigin.lineNumber
@@ -165,6 +243,8 @@ final class SimpleConfigOrigin implements ConfigOrigin {
 
     @Override
     public int hashCode() {
+        if (isLazyMerge())
+            return strict().hashCode();
         int h = 41 * (41 + description.hashCode());
         h = 41 * (h + lineNumber);
         h = 41 * (h + endLineNumber);
@@ -177,7 +257,9 @@ final class SimpleConfigOrigin implements ConfigOrigin {
     @Override
     public String toString() {
         // the url is only really useful on top of description for resources
-        if (originType == OriginType.RESOURCE && urlOrNull != null) {
+        if (isLazyMerge()) {
+            return strict().toString();
+        } else if (originType == OriginType.RESOURCE && urlOrNull != null) {
             return "ConfigOrigin(" + description + "," + urlOrNull + ")";
         } else {
             return "ConfigOrigin(" + description + ")";
@@ -186,7 +268,9 @@ final class SimpleConfigOrigin implements ConfigOrigin {
 
     @Override
     public String filename() {
-        if (originType == OriginType.FILE) {
+        if (isLazyMerge()) {
+            return strict().filename();
+        } else if (originType == OriginType.FILE) {
             return description;
         } else if (urlOrNull != null) {
             URL url;
@@ -207,7 +291,9 @@ final class SimpleConfigOrigin implements ConfigOrigin {
 
     @Override
     public URL url() {
-        if (urlOrNull == null) {
+        if (isLazyMerge()) {
+            return strict().url();
+        } else if (urlOrNull == null) {
             return null;
         } else {
             try {
@@ -220,7 +306,9 @@ final class SimpleConfigOrigin implements ConfigOrigin {
 
     @Override
     public String resource() {
-        if (originType == OriginType.RESOURCE) {
+        if (isLazyMerge()) {
+            return strict().resource();
+        } else if (originType == OriginType.RESOURCE) {
             return description;
         } else {
             return null;
@@ -229,12 +317,16 @@ final class SimpleConfigOrigin implements ConfigOrigin {
 
     @Override
     public int lineNumber() {
+        if (isLazyMerge())
+            return strict().lineNumber();
         return lineNumber;
     }
 
     @Override
     public List<String> comments() {
-        if (commentsOrNull != null) {
+        if (isLazyMerge()) {
+            return strict().comments();
+        } else if (commentsOrNull != null) {
             return Collections.unmodifiableList(commentsOrNull);
         } else {
             return Collections.emptyList();
@@ -352,8 +444,34 @@ final class SimpleConfigOrigin implements ConfigOrigin {
         }
     }
 
+    // the origins must all be strict
+    private static SimpleConfigOrigin mergeStrictly(List<SimpleConfigOrigin> stack) {
+        List<SimpleConfigOrigin> remaining = new ArrayList<SimpleConfigOrigin>(stack.size());
+        for (SimpleConfigOrigin o : stack) {
+            remaining.add(o.strict());
+        }
+        while (remaining.size() > 2) {
+            SimpleConfigOrigin c = remaining.get(remaining.size() - 1);
+            remaining.remove(remaining.size() - 1);
+            SimpleConfigOrigin b = remaining.get(remaining.size() - 1);
+            remaining.remove(remaining.size() - 1);
+            SimpleConfigOrigin a = remaining.get(remaining.size() - 1);
+            remaining.remove(remaining.size() - 1);
+
+            SimpleConfigOrigin merged = mergeThree(a, b, c);
+
+            remaining.add(merged);
+        }
+
+        // should be down to either 1 or 2
+        if (remaining.size() == 2)
+            return mergeTwo(remaining.get(0), remaining.get(1));
+        else
+            return remaining.get(0);
+    }
+
     static ConfigOrigin mergeOrigins(ConfigOrigin a, ConfigOrigin b) {
-        return mergeTwo((SimpleConfigOrigin) a, (SimpleConfigOrigin) b);
+        return new SimpleConfigOrigin(Arrays.asList((SimpleConfigOrigin) a, (SimpleConfigOrigin) b));
     }
 
     static ConfigOrigin mergeOrigins(List<? extends AbstractConfigValue> stack) {
@@ -369,33 +487,19 @@ final class SimpleConfigOrigin implements ConfigOrigin {
             throw new ConfigException.BugOrBroken("can't merge empty list of origins");
         } else if (stack.size() == 1) {
             return stack.iterator().next();
-        } else if (stack.size() == 2) {
-            Iterator<? extends ConfigOrigin> i = stack.iterator();
-            return mergeTwo((SimpleConfigOrigin) i.next(), (SimpleConfigOrigin) i.next());
         } else {
-            List<SimpleConfigOrigin> remaining = new ArrayList<SimpleConfigOrigin>();
+            List<SimpleConfigOrigin> mergedFrom = new ArrayList<SimpleConfigOrigin>(stack.size());
             for (ConfigOrigin o : stack) {
-                remaining.add((SimpleConfigOrigin) o);
-            }
-            while (remaining.size() > 2) {
-                SimpleConfigOrigin c = remaining.get(remaining.size() - 1);
-                remaining.remove(remaining.size() - 1);
-                SimpleConfigOrigin b = remaining.get(remaining.size() - 1);
-                remaining.remove(remaining.size() - 1);
-                SimpleConfigOrigin a = remaining.get(remaining.size() - 1);
-                remaining.remove(remaining.size() - 1);
-
-                SimpleConfigOrigin merged = mergeThree(a, b, c);
-
-                remaining.add(merged);
+                mergedFrom.add((SimpleConfigOrigin) o);
             }
-
-            // should be down to either 1 or 2
-            return mergeOrigins(remaining);
+            return new SimpleConfigOrigin(mergedFrom);
         }
     }
 
     Map<SerializedConfigValue.SerializedField, Object> toFields() {
+        if (isLazyMerge())
+            return strict().toFields();
+
         Map<SerializedConfigValue.SerializedField, Object> m = new EnumMap<SerializedConfigValue.SerializedField, Object>(SerializedConfigValue.SerializedField.class);
 
         m.put(SerializedConfigValue.SerializedField.ORIGIN_DESCRIPTION, description);
@@ -490,7 +594,10 @@ final class SimpleConfigOrigin implements ConfigOrigin {
         Number originTypeOrdinal = (Number) m.get(SerializedConfigValue.SerializedField.ORIGIN_TYPE);
         if (originTypeOrdinal == null)
             throw new IOException("Missing ORIGIN_TYPE field");
-        OriginType originType = OriginType.values()[originTypeOrdinal.byteValue()];
+        int ordinal = originTypeOrdinal.intValue();
+        if (ordinal < 0 || ordinal >= OriginType.values().length)
+            throw new IOException("Unknown ORIGIN_TYPE " + ordinal);
+        OriginType originType = OriginType.values()[ordinal];
         String urlOrNull = (String) m.get(SerializedConfigValue.SerializedField.ORIGIN_URL);
         @SuppressWarnings("unchecked")
         List<String> commentsOrNull = (List<String>) m.get(SerializedConfigValue.SerializedField.ORIGIN_COMMENTS);
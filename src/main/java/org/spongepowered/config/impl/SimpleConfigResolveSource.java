@@ -0,0 +1,73 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.spongepowered.config.ConfigException;
+import org.spongepowered.config.ConfigResolveSource;
+
+/**
+ * A resolved config together with an index from every path in it to the value
+ * at that path, so looking up a substitution is a single hash lookup instead of
+ * a walk from the root. The index is never modified after construction, so
+ * this can be shared between threads; the mutable per-resolve state lives in
+ * the ResolveSource created for each resolve.
+ */
+final class SimpleConfigResolveSource implements ConfigResolveSource {
+    final private SimpleConfig config;
+    final private Map<Path, AbstractConfigValue> index;
+
+    SimpleConfigResolveSource(SimpleConfig config) {
+        if (config.root().resolveStatus() != ResolveStatus.RESOLVED)
+            throw new ConfigException.NotResolved(
+                    "need to Config#resolve() a config before using it as a resolve source, see the API docs for Config#resolve()");
+        this.config = config;
+        Map<Path, AbstractConfigValue> m = new HashMap<Path, AbstractConfigValue>();
+        addPaths(m, null, config.root());
+        this.index = Collections.unmodifiableMap(m);
+    }
+
+    private static void addPaths(Map<Path, AbstractConfigValue> m, Path parent,
+            AbstractConfigObject obj) {
+        for (String key : obj.keySet()) {
+            AbstractConfigValue v = obj.get(key);
+            Path path = parent == null ? Path.newKey(key) : Path.newKey(key).prepend(parent);
+            m.put(path, v);
+            if (v instanceof AbstractConfigObject)
+                addPaths(m, path, (AbstractConfigObject) v);
+        }
+    }
+
+    @Override
+    public SimpleConfig toConfig() {
+        return config;
+    }
+
+    ResolveSource newResolveSource() {
+        return new ResolveSource(config.root(), index);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + index.size() + " paths)";
+    }
+}
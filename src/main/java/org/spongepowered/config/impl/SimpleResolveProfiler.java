@@ -0,0 +1,255 @@
+/*
+ * This file is part of Sponge Config, licensed under the MIT License (Apache2).
+ *
+ * Copyright (C) 2011-2012 Typesafe Inc. <http://typesafe.com>
+ * Adaptations Copyright (c) SpongePowered.org <http://www.spongepowered.org>
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.spongepowered.config.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.spongepowered.config.ConfigOrigin;
+import org.spongepowered.config.ConfigResolveProfiler;
+
+final class SimpleResolveProfiler implements ConfigResolveProfiler {
+    // we don't want to keep every origin of a popular expression
+    final private static int MAX_ORIGINS = 5;
+
+    final private ConcurrentMap<SubstitutionExpression, Stats> stats;
+
+    SimpleResolveProfiler() {
+        this.stats = new ConcurrentHashMap<SubstitutionExpression, Stats>();
+    }
+
+    private static final class Stats implements ConfigResolveProfiler.Entry {
+        final private SubstitutionExpression expr;
+        final private Set<ConfigOrigin> origins = new LinkedHashSet<ConfigOrigin>();
+        final private AtomicLong lookups = new AtomicLong();
+        final private AtomicLong memoHits = new AtomicLong();
+        final private AtomicLong restrictedResolves = new AtomicLong();
+        final private AtomicLong replacements = new AtomicLong();
+        final private AtomicLong cycles = new AtomicLong();
+        final private AtomicLong totalNanos = new AtomicLong();
+        final private AtomicLong selfNanos = new AtomicLong();
+
+        Stats(SubstitutionExpression expr) {
+            this.expr = expr;
+        }
+
+        void addOrigin(ConfigOrigin origin) {
+            synchronized (origins) {
+                if (origins.size() < MAX_ORIGINS)
+                    origins.add(origin);
+            }
+        }
+
+        @Override
+        public String expression() {
+            return expr.toString();
+        }
+
+        @Override
+        public List<ConfigOrigin> origins() {
+            synchronized (origins) {
+                return Collections.unmodifiableList(new ArrayList<ConfigOrigin>(origins));
+            }
+        }
+
+        @Override
+        public long lookups() {
+            return lookups.get();
+        }
+
+        @Override
+        public long memoHits() {
+            return memoHits.get();
+        }
+
+        @Override
+        public long restrictedResolves() {
+            return restrictedResolves.get();
+        }
+
+        @Override
+        public long replacements() {
+            return replacements.get();
+        }
+
+        @Override
+        public long cycles() {
+            return cycles.get();
+        }
+
+        @Override
+        public long totalNanos() {
+            return totalNanos.get();
+        }
+
+        @Override
+        public long selfNanos() {
+            return selfNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(expr.toString());
+            sb.append(": ");
+            sb.append(TimeUnit.NANOSECONDS.toMicros(selfNanos()));
+            sb.append("us self, ");
+            sb.append(TimeUnit.NANOSECONDS.toMicros(totalNanos()));
+            sb.append("us total, ");
+            sb.append(lookups());
+            sb.append(" lookups, ");
+            sb.append(memoHits());
+            sb.append(" memo hits, ");
+            sb.append(restrictedResolves());
+            sb.append(" restricted resolves, ");
+            sb.append(replacements());
+            sb.append(" replacements, ");
+            sb.append(cycles());
+            sb.append(" cycles (at ");
+            String separator = ", ";
+            for (ConfigOrigin origin : origins()) {
+                sb.append(origin.description());
+                sb.append(separator);
+            }
+            sb.setLength(sb.length() - separator.length());
+            sb.append(")");
+            return sb.toString();
+        }
+    }
+
+    private Stats stats(SubstitutionExpression expr) {
+        Stats s = stats.get(expr);
+        if (s == null) {
+            s = new Stats(expr);
+            Stats old = stats.putIfAbsent(expr, s);
+            if (old != null)
+                s = old;
+        }
+        return s;
+    }
+
+    /**
+     * The state of profiling a single resolve, which like the rest of a
+     * ResolveContext is only used by one thread. Events are charged to the
+     * innermost substitution being looked up.
+     */
+    final class Session {
+        final private List<Stats> lookups = new ArrayList<Stats>();
+        final private List<long[]> timings = new ArrayList<long[]>();
+
+        private Stats current() {
+            if (lookups.isEmpty())
+                return null;
+            else
+                return lookups.get(lookups.size() - 1);
+        }
+
+        void startLookup(ConfigReference ref) {
+            Stats s = stats(ref.expression());
+            s.addOrigin(ref.origin());
+            s.lookups.incrementAndGet();
+            lookups.add(s);
+            // start time, and time spent in nested lookups
+            timings.add(new long[] { System.nanoTime(), 0 });
+        }
+
+        void endLookup() {
+            Stats s = lookups.remove(lookups.size() - 1);
+            long[] timing = timings.remove(timings.size() - 1);
+            long elapsed = System.nanoTime() - timing[0];
+            s.totalNanos.addAndGet(elapsed);
+            s.selfNanos.addAndGet(elapsed - timing[1]);
+            if (!timings.isEmpty())
+                timings.get(timings.size() - 1)[1] += elapsed;
+        }
+
+        void memoHit() {
+            Stats s = current();
+            if (s != null)
+                s.memoHits.incrementAndGet();
+        }
+
+        void restrictedResolve() {
+            Stats s = current();
+            if (s != null)
+                s.restrictedResolves.incrementAndGet();
+        }
+
+        void replacement() {
+            Stats s = current();
+            if (s != null)
+                s.replacements.incrementAndGet();
+        }
+
+        void cycle() {
+            Stats s = current();
+            if (s != null)
+                s.cycles.incrementAndGet();
+        }
+    }
+
+    Session newSession() {
+        return new Session();
+    }
+
+    @Override
+    public List<Entry> mostExpensive(int limit) {
+        List<Entry> entries = new ArrayList<Entry>(stats.values());
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                long x = a.selfNanos();
+                long y = b.selfNanos();
+                return x > y ? -1 : (x < y ? 1 : 0);
+            }
+        });
+        if (entries.size() > limit)
+            return new ArrayList<Entry>(entries.subList(0, limit));
+        else
+            return entries;
+    }
+
+    @Override
+    public String report(int limit) {
+        StringBuilder sb = new StringBuilder();
+        for (Entry e : mostExpensive(limit)) {
+            sb.append(e.toString());
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        stats.clear();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + stats.size() + " substitutions)";
+    }
+}
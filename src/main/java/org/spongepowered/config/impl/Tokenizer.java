@@ -64,7 +64,15 @@ final class Tokenizer {
      * that after you're done with the returned iterator.
      */
     static Iterator<Token> tokenize(ConfigOrigin origin, Reader input, ConfigSyntax flavor) {
-        return new TokenIterator(origin, input, flavor != ConfigSyntax.JSON);
+        return tokenize(new OriginTable(origin), input, flavor);
+    }
+
+    /**
+     * Like {@link #tokenize(ConfigOrigin, Reader, ConfigSyntax)}, sharing line
+     * origins with whoever else uses the table, normally the parser.
+     */
+    static Iterator<Token> tokenize(OriginTable origins, Reader input, ConfigSyntax flavor) {
+        return new TokenIterator(origins, input, flavor != ConfigSyntax.JSON);
     }
 
     private static class TokenIterator implements Iterator<Token> {
@@ -85,9 +93,9 @@ final class Tokenizer {
                     whitespace.appendCodePoint(c);
             }
 
-            Token check(Token t, ConfigOrigin baseOrigin, int lineNumber) {
+            Token check(Token t, OriginTable origins, int lineNumber) {
                 if (isSimpleValue(t)) {
-                    return nextIsASimpleValue(baseOrigin, lineNumber);
+                    return nextIsASimpleValue(origins, lineNumber);
                 } else {
                     nextIsNotASimpleValue();
                     return null;
@@ -105,14 +113,14 @@ final class Tokenizer {
             // called if the next token IS a simple value,
             // so creates a whitespace token if the previous
             // token also was.
-            private Token nextIsASimpleValue(ConfigOrigin baseOrigin,
+            private Token nextIsASimpleValue(OriginTable origins,
                     int lineNumber) {
                 if (lastTokenWasSimpleValue) {
                     // need to save whitespace between the two so
                     // the parser has the option to concatenate it.
                     if (whitespace.length() > 0) {
                         Token t = Tokens.newUnquotedText(
-                                lineOrigin(baseOrigin, lineNumber),
+                                origins.lineOrigin(lineNumber),
                                 whitespace.toString());
                         whitespace.setLength(0); // reset
                         return t;
@@ -129,6 +137,7 @@ final class Tokenizer {
         }
 
         final private SimpleConfigOrigin origin;
+        final private OriginTable origins;
         final private Reader input;
         final private LinkedList<Integer> buffer;
         private int lineNumber;
@@ -137,13 +146,14 @@ final class Tokenizer {
         final private WhitespaceSaver whitespaceSaver;
         final private boolean allowComments;
 
-        TokenIterator(ConfigOrigin origin, Reader input, boolean allowComments) {
-            this.origin = (SimpleConfigOrigin) origin;
+        TokenIterator(OriginTable origins, Reader input, boolean allowComments) {
+            this.origin = origins.base();
+            this.origins = origins;
             this.input = input;
             this.allowComments = allowComments;
             this.buffer = new LinkedList<Integer>();
             lineNumber = 1;
-            lineOrigin = this.origin.setLineNumber(lineNumber);
+            lineOrigin = origins.lineOrigin(lineNumber);
             tokens = new LinkedList<Token>();
             tokens.add(Tokens.START);
             whitespaceSaver = new WhitespaceSaver();
@@ -267,9 +277,21 @@ final class Tokenizer {
             return problem(origin, "", message, null);
         }
 
-        private static ConfigOrigin lineOrigin(ConfigOrigin baseOrigin,
-                int lineNumber) {
-            return ((SimpleConfigOrigin) baseOrigin).setLineNumber(lineNumber);
+        // same as pullComment() but without keeping the text
+        private void skipComment(int firstChar) {
+            if (firstChar == '/') {
+                int discard = nextCharRaw();
+                if (discard != '/')
+                    throw new ConfigException.BugOrBroken("called skipComment but // not seen");
+            }
+
+            for (;;) {
+                int c = nextCharRaw();
+                if (c == -1 || c == '\n') {
+                    putBack(c);
+                    return;
+                }
+            }
         }
 
         // ONE char has always been consumed, either the # or the first /, but
@@ -461,7 +483,7 @@ final class Tokenizer {
                     else if (c == '\n') {
                         // keep the line number accurate
                         lineNumber += 1;
-                        lineOrigin = origin.setLineNumber(lineNumber);
+                        lineOrigin = origins.lineOrigin(lineNumber);
                     }
                 }
 
@@ -546,7 +568,7 @@ final class Tokenizer {
                     throw problem(origin,
                             "Substitution ${ was not closed with a }");
                 } else {
-                    Token whitespace = saver.check(t, origin, lineNumber);
+                    Token whitespace = saver.check(t, origins, lineNumber);
                     if (whitespace != null)
                         expression.add(whitespace);
                     expression.add(t);
@@ -564,12 +586,19 @@ final class Tokenizer {
                 // newline tokens have the just-ended line number
                 Token line = Tokens.newLine(lineOrigin);
                 lineNumber += 1;
-                lineOrigin = origin.setLineNumber(lineNumber);
+                lineOrigin = origins.lineOrigin(lineNumber);
                 return line;
             } else {
                 Token t;
                 if (startOfComment(c)) {
-                    t = pullComment(c);
+                    if (origins.keepsComments()) {
+                        t = pullComment(c);
+                    } else {
+                        // nobody will see the comment, so don't make a token;
+                        // what follows is the newline or the end
+                        skipComment(c);
+                        return pullNextToken(saver);
+                    }
                 } else {
                     switch (c) {
                     case '"':
@@ -639,7 +668,7 @@ final class Tokenizer {
 
         private void queueNextToken() throws ProblemException {
             Token t = pullNextToken(whitespaceSaver);
-            Token whitespace = whitespaceSaver.check(t, origin, lineNumber);
+            Token whitespace = whitespaceSaver.check(t, origins, lineNumber);
             if (whitespace != null)
                 tokens.add(whitespace);
 
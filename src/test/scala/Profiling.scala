@@ -54,6 +54,44 @@ object Util {
         timeHelper(body, iterations, false)
     }
 
+    // bytes allocated by this thread per run of body, where the JVM can tell us
+    def allocated(body: () => Unit, iterations: Int): Long = {
+        val threads = java.lang.management.ManagementFactory.getThreadMXBean() match {
+            case t: com.sun.management.ThreadMXBean => t
+            case _ => return -1
+        }
+        val id = Thread.currentThread().getId()
+        for (i <- 1 to iterations) {
+            body()
+        }
+        val start = threads.getThreadAllocatedBytes(id)
+        for (i <- 1 to iterations) {
+            body()
+        }
+        (threads.getThreadAllocatedBytes(id) - start) / iterations
+    }
+
+    private def usedHeap(): Long = {
+        val runtime = Runtime.getRuntime()
+        for (i <- 1 to 3) {
+            System.gc()
+        }
+        runtime.totalMemory() - runtime.freeMemory()
+    }
+
+    // rough bytes still reachable from what build returns
+    def retained(build: () => AnyRef): Long = {
+        // what an earlier measurement built can outlive one round of GCs,
+        // and would be counted as freed by this one
+        usedHeap()
+        val before = usedHeap()
+        val kept = build()
+        val after = usedHeap()
+        if (kept.hashCode == 42)
+            System.err.println("") // keep "kept" alive until here
+        after - before
+    }
+
     def loop(args: Seq[String], body: () => Unit) {
         if (args.contains("-loop")) {
             println("looping; ctrl+C to escape")
@@ -167,3 +205,622 @@ object CatchExceptionOnMissing extends App {
         Util.loop(args, task)
     }
 }
+
+object ResolveOptionalSelfReferences extends App {
+    // each key refers to itself optionally with nothing to fall back to,
+    // so every ${?} lookup ends in a cycle the resolver has to back out of
+    val conf = ConfigFactory.parseString((1 to 200).map({ i => "a" + i + " = ${?a" + i + "}\"x\"" }).mkString("\n"))
+
+    def task() {
+        val resolved = conf.resolve()
+        if (resolved.getString("a200") != "x") {
+            throw new Exception("broken resolve")
+        }
+    }
+
+    val ms = Util.time(task, 2000)
+    println("ResolveOptionalSelfReferences: " + ms + "ms")
+
+    Util.loop(args, task)
+}
+
+object ResolveAllOverrides extends App {
+    import scala.collection.JavaConverters._
+
+    val base = ConfigFactory.parseString((1 to 500).map({ i =>
+        "k" + i + " { name = n" + i + ", greeting = \"hello \"${k" + i + ".name}, port = ${port} }"
+    }).mkString("port = 80\n", "\n", ""))
+    val overrides = (1 to 200).map({ i => ConfigFactory.parseString("k" + (i % 500 + 1) + ".name = tenant" + i) }).asJava
+
+    def separately() {
+        for (o <- overrides.asScala) {
+            o.withFallback(base).resolve()
+        }
+    }
+
+    def batched() {
+        ConfigFactory.resolveAll(base, overrides)
+    }
+
+    val separateMs = Util.time(separately, 20)
+    val batchedMs = Util.time(batched, 20)
+    println("ResolveAllOverrides: separately " + separateMs + "ms, batched " + batchedMs + "ms")
+
+    Util.loop(args, batched)
+}
+
+object MergeOverlappingObjects extends App {
+    // every object appears in every layer with a field of its own, so each
+    // withFallback merges origins once per object and nobody ever looks at
+    // the result
+    val layers = (1 to 20).map({ layer =>
+        ConfigFactory.parseString((1 to 200).map({ i => "k" + i + " { a = " + layer + ", b" + layer + " = " + i + " }" }).mkString("\n"),
+            org.spongepowered.config.ConfigParseOptions.defaults().setOriginDescription("layer" + layer))
+    })
+
+    def task() {
+        val merged = layers.reduceLeft(_ withFallback _)
+        if (merged.getInt("k200.a") != 1) {
+            throw new Exception("broken merge")
+        }
+    }
+
+    val ms = Util.time(task, 200)
+    val bytes = Util.allocated(task, 200)
+    println("MergeOverlappingObjects: " + ms + "ms, " + bytes + " bytes allocated")
+
+    Util.loop(args, task)
+}
+
+object ParseWithOriginTracking extends App {
+    import org.spongepowered.config.ConfigOriginTracking
+    import org.spongepowered.config.ConfigParseOptions
+
+    val text = (1 to 20000).map({ i => "# setting " + i + "\nk" + i + " { a = " + i + ", b = \"x" + i + "\" }" }).mkString("\n")
+
+    def parse(tracking: ConfigOriginTracking) =
+        ConfigFactory.parseString(text, ConfigParseOptions.defaults().setOriginTracking(tracking))
+
+    for (tracking <- ConfigOriginTracking.values()) {
+        val ms = Util.time({ () => parse(tracking) }, 10)
+        val bytes = Util.retained({ () => parse(tracking) })
+        println("ParseWithOriginTracking " + tracking + ": " + ms + "ms, " + bytes + " bytes retained")
+    }
+}
+
+object MergeAllSources extends App {
+    import scala.collection.JavaConverters._
+
+    // 30 layers that mostly override the same nested objects, as when
+    // stacking many config files
+    val sources = (1 to 30).map({ layer =>
+        ConfigFactory.parseString((1 to 100).map({ i =>
+            "k" + i + " { common = " + layer + ", l" + layer + " = " + i + ", nested { x" + (layer % 5) + " = " + i + " } }"
+        }).mkString("\n"))
+    })
+
+    def folded() {
+        val merged = sources.reduceLeft(_ withFallback _)
+        if (merged.getInt("k100.common") != 1) {
+            throw new Exception("broken merge")
+        }
+    }
+
+    def mergeAll() {
+        val merged = ConfigFactory.mergeAll(sources.asJava)
+        if (merged.getInt("k100.common") != 1) {
+            throw new Exception("broken merge")
+        }
+    }
+
+    val foldedMs = Util.time(folded, 100)
+    val foldedBytes = Util.allocated(folded, 100)
+    val mergeAllMs = Util.time(mergeAll, 100)
+    val mergeAllBytes = Util.allocated(mergeAll, 100)
+    println("MergeAllSources: withFallback " + foldedMs + "ms " + foldedBytes + " bytes, mergeAll " +
+        mergeAllMs + "ms " + mergeAllBytes + " bytes")
+
+    Util.loop(args, mergeAll)
+}
+
+object ResolveLayeredDelayedMerge extends App {
+    // the first layer makes every object a delayed merge, and the other
+    // layers are plain objects stacked under it
+    val layers = ConfigFactory.parseString((1 to 100).map({ i => "k" + i + " = ${defaults}" }).mkString("defaults { d = 0 }\n", "\n", "")) +:
+        (1 to 200).map({ layer =>
+            ConfigFactory.parseString((1 to 100).map({ i => "k" + i + " { l" + layer + " = " + i + " }" }).mkString("\n"))
+        })
+
+    def task() {
+        val resolved = layers.reduceLeft(_ withFallback _).resolve()
+        if (resolved.getInt("k100.l200") != 100) {
+            throw new Exception("broken resolve")
+        }
+    }
+
+    val ms = Util.time(task, 100)
+    println("ResolveLayeredDelayedMerge: " + ms + "ms")
+
+    Util.loop(args, task)
+}
+
+object InternTenantConfigs extends App {
+    import scala.collection.JavaConverters._
+
+    // every tenant has the same 50 settings apart from its name
+    def tenant(i: Int) = {
+        val settings = (1 to 50).map({ j => ("setting" + j) -> (Map("enabled" -> true, "limit" -> j, "label" -> ("label" + j)).asJava: AnyRef) }).toMap
+        ConfigFactory.parseMap((settings + ("name" -> ("tenant" + i))).asJava)
+    }
+
+    val plain = Util.retained({ () => (1 to 10000).map(tenant) })
+    val interned = Util.retained({ () => (1 to 10000).map({ i => ConfigFactory.intern(tenant(i)) }) })
+    println("InternTenantConfigs: 10000 tenants retain " + plain + " bytes, " + interned + " bytes interned")
+}
+
+object CompareReloadedConfigs extends App {
+    // checking whether each reload changed anything, and looking configs
+    // up in a cache keyed by config
+    val text = (1 to 2000).map({ i => "k" + i + " { a = " + i + ", b = [x, y, z], c { d = true } }" }).mkString("\n")
+    val old = ConfigFactory.parseString(text)
+    val reloads = (1 to 10).map({ i => ConfigFactory.parseString(text + "\nk" + (i * 100) + ".c.d = false") })
+    val cache = new java.util.HashMap[AnyRef, String]()
+    cache.put(old, "cached")
+
+    def task() {
+        for (reloaded <- reloads) {
+            if (reloaded == old || cache.get(reloaded) != null)
+                throw new Exception("broken equals")
+        }
+    }
+
+    val ms = Util.time(task, 100)
+    println("CompareReloadedConfigs: " + ms + "ms")
+
+    Util.loop(args, task)
+}
+
+object OverlayTenantConfigs extends App {
+    import org.spongepowered.config.ConfigRenderOptions
+
+    // a large shared base and 1000 tenants that each change two settings
+    val base = ConfigFactory.parseString((1 to 500).map({ i => "setting" + i + " { enabled = true, limit = " + i + ", label = label" + i + " }" }).mkString("\n")).resolve()
+    def overrides(i: Int) = ConfigFactory.parseString("name = tenant" + i + "\nsetting" + (i % 500 + 1) + ".limit = 0").resolve()
+
+    val merged = Util.retained({ () => (1 to 1000).map({ i => overrides(i).withFallback(base) }) })
+    val overlaid = Util.retained({ () => (1 to 1000).map({ i => ConfigFactory.overlay(overrides(i), base) }) })
+    println("OverlayTenantConfigs: 1000 tenants retain " + merged + " bytes merged, " + overlaid + " bytes overlaid")
+    // tenants that were iterated, rendered and hashed shouldn't keep a merged copy
+    val touched = Util.retained({ () =>
+        (1 to 1000).map({ i =>
+            val t = ConfigFactory.overlay(overrides(i), base)
+            t.root.keySet.size + t.entrySet.size + t.root.render(ConfigRenderOptions.concise()).length + t.hashCode
+            t
+        })
+    })
+    println("OverlayTenantConfigs: 1000 tenants retain " + touched + " bytes overlaid after keySet, entrySet, render and hashCode")
+
+    val tenants = (1 to 1000).map({ i => ConfigFactory.overlay(overrides(i), base) })
+    def task() {
+        for (t <- tenants) {
+            if (t.getInt("setting250.limit") != 250 && t.getInt("setting250.limit") != 0)
+                throw new Exception("broken overlay")
+        }
+    }
+    val ms = Util.time(task, 100)
+    println("OverlayTenantConfigs: " + ms + "ms per 1000 lookups")
+
+    // each tenant's own override, which goes through an object in both halves
+    val overridden = (1 to 1000).map({ i => "setting" + (i % 500 + 1) + ".limit" })
+    def overriddenTask() {
+        for (i <- 0 until 1000) {
+            if (tenants(i).getInt(overridden(i)) != 0)
+                throw new Exception("broken overlay")
+        }
+    }
+    println("OverlayTenantConfigs: " + Util.time(overriddenTask, 100) + "ms per 1000 overridden lookups, "
+        + Util.allocated(overriddenTask, 100) + " bytes allocated")
+
+    Util.loop(args, task)
+}
+
+object ReadNumericLists extends App {
+    import scala.collection.JavaConverters._
+
+    // weight tables: 100 lists of 1000 numbers each
+    val text = (1 to 100).map({ i => "w" + i + " : [" + (1 to 1000).map(_ * i).mkString(", ") + "]" }).mkString("\n")
+    val bytes = Util.retained({ () => ConfigFactory.parseString(text) })
+    println("ReadNumericLists: parsed tables retain " + bytes + " bytes")
+
+    val conf = ConfigFactory.parseString(text)
+    def boxed() {
+        var sum = 0L
+        for (i <- 1 to 100; n <- conf.getIntList("w" + i).asScala)
+            sum += n.intValue
+        if (sum == 0) throw new Exception("unexpected sum")
+    }
+    def primitive() {
+        var sum = 0L
+        for (i <- 1 to 100; n <- conf.getIntArray("w" + i))
+            sum += n
+        if (sum == 0) throw new Exception("unexpected sum")
+    }
+    println("ReadNumericLists: getIntList " + Util.time(boxed, 100) + "ms, " + Util.allocated(boxed, 100) + " bytes")
+    println("ReadNumericLists: getIntArray " + Util.time(primitive, 100) + "ms, " + Util.allocated(primitive, 100) + " bytes")
+
+    Util.loop(args, primitive)
+}
+
+object ReadTypedSettings extends App {
+    // settings written as strings, read the way hot code does
+    val conf = ConfigFactory.parseString("timeout : 30s, retry : 250ms, buffer : 64K, enabled : yes, limit : \"100\", window : 5")
+
+    def task() {
+        for (i <- 1 to 1000) {
+            if (conf.getDuration("timeout", TimeUnit.MILLISECONDS) != 30000 ||
+                conf.getDuration("retry", TimeUnit.MILLISECONDS) != 250 ||
+                conf.getBytes("buffer") != 65536 ||
+                !conf.getBoolean("enabled") ||
+                conf.getInt("limit") != 100 ||
+                conf.getDuration("window", TimeUnit.MILLISECONDS) != 5)
+                throw new Exception("bad read")
+        }
+    }
+    val ms = Util.time(task, 200)
+    println("ReadTypedSettings: " + ms + "ms, " + Util.allocated(task, 200) + " bytes per 1000 rounds")
+
+    Util.loop(args, task)
+}
+
+object SerializeLargeConfig extends App {
+    // many objects with the same keys, like per-host or per-job sections
+    val conf = ConfigFactory.parseString((1 to 20000).map({ i =>
+        "host" + i + " { name : \"host" + i + ".example.com\", port : " + (8000 + i % 100) + ", weight : 0.5, enabled : true, tags : [a, b, c] }"
+    }).mkString("\n"))
+
+    def serialize(): Array[Byte] = {
+        val bytes = new java.io.ByteArrayOutputStream()
+        val out = new java.io.ObjectOutputStream(bytes)
+        out.writeObject(conf)
+        out.close()
+        bytes.toByteArray
+    }
+    def deserialize(bytes: Array[Byte]): AnyRef =
+        new java.io.ObjectInputStream(new java.io.ByteArrayInputStream(bytes)).readObject()
+
+    val serialized = serialize()
+    if (deserialize(serialized) != conf)
+        throw new Exception("round trip changed the config")
+    def task() { deserialize(serialize()) }
+
+    val ms = Util.time(task, 10)
+    println("SerializeLargeConfig: " + serialized.length + " bytes, " + ms + "ms to write and read back")
+
+    Util.loop(args, task)
+}
+
+object EncodeWithCodec extends App {
+    import org.spongepowered.config.ConfigCodec
+
+    // same config as SerializeLargeConfig
+    val conf = ConfigFactory.parseString((1 to 20000).map({ i =>
+        "host" + i + " { name : \"host" + i + ".example.com\", port : " + (8000 + i % 100) + ", weight : 0.5, enabled : true, tags : [a, b, c] }"
+    }).mkString("\n"))
+
+    def serialized() {
+        val bytes = new java.io.ByteArrayOutputStream()
+        val out = new java.io.ObjectOutputStream(bytes)
+        out.writeObject(conf)
+        out.close()
+        new java.io.ObjectInputStream(new java.io.ByteArrayInputStream(bytes.toByteArray)).readObject()
+    }
+
+    val direct = java.nio.ByteBuffer.allocateDirect(4 * 1024 * 1024)
+    def encoded(includeOrigins: Boolean)() {
+        direct.clear()
+        ConfigCodec.encode(conf, direct, includeOrigins)
+        direct.flip()
+        if (ConfigCodec.decode(direct).isEmpty)
+            throw new Exception("empty config")
+    }
+
+    def heapEncoded() {
+        if (!ConfigCodec.encode(conf).hasRemaining)
+            throw new Exception("empty encoding")
+    }
+
+    val withOrigins = ConfigCodec.encode(conf).remaining
+    direct.clear()
+    ConfigCodec.encode(conf, direct, false)
+    val withoutOrigins = direct.position()
+
+    println("EncodeWithCodec: ObjectOutputStream round trip " + Util.time(serialized, 10) + "ms")
+    println("EncodeWithCodec: direct buffer round trip " + Util.time(encoded(true), 10) + "ms, " + withOrigins + " bytes")
+    println("EncodeWithCodec: without origins " + Util.time(encoded(false), 10) + "ms, " + withoutOrigins + " bytes")
+    println("EncodeWithCodec: encode to a new heap buffer " + Util.time(heapEncoded, 10) + "ms, " + Util.allocated(heapEncoded, 10) + " bytes allocated")
+
+    Util.loop(args, encoded(true))
+}
+
+object EncodeConfigDelta extends App {
+    import org.spongepowered.config.ConfigCodec
+
+    // same config as SerializeLargeConfig, with a few hosts changed
+    def hosts(changed: Set[Int]) = ConfigFactory.parseString((1 to 20000).map({ i =>
+        "host" + i + " { name : \"host" + i + ".example.com\", port : " + (if (changed(i)) 9999 else 8000 + i % 100) + ", weight : 0.5, enabled : true, tags : [a, b, c] }"
+    }).mkString("\n"))
+    val oldVersion = hosts(Set.empty)
+    val newVersion = hosts(Set(7, 5000, 19999))
+
+    def full() {
+        ConfigCodec.decode(ConfigCodec.encode(newVersion))
+    }
+
+    def delta() {
+        ConfigCodec.applyDelta(oldVersion, ConfigCodec.encodeDelta(oldVersion, newVersion))
+    }
+
+    println("EncodeConfigDelta: full encode " + ConfigCodec.encode(newVersion).remaining + " bytes, " + Util.time(full, 10) + "ms")
+    println("EncodeConfigDelta: delta " + ConfigCodec.encodeDelta(oldVersion, newVersion).remaining + " bytes, " + Util.time(delta, 10) + "ms")
+
+    Util.loop(args, delta)
+}
+
+object DiffReloadedConfig extends App {
+    import org.spongepowered.config.ConfigDiff
+    import scala.collection.JavaConverters._
+
+    // same config as SerializeLargeConfig, reloaded with a few hosts changed
+    def hosts(changed: Set[Int]) = ConfigFactory.parseString((1 to 20000).map({ i =>
+        "host" + i + " { name : \"host" + i + ".example.com\", port : " + (if (changed(i)) 9999 else 8000 + i % 100) + ", weight : 0.5, enabled : true, tags : [a, b, c] }"
+    }).mkString("\n"))
+    // a plain reload shares nothing with the old version; interning both
+    // shares every unchanged subtree
+    val oldVersion = hosts(Set.empty)
+    val newVersion = hosts(Set(7, 5000, 19999))
+    val oldInterned = ConfigFactory.intern(hosts(Set.empty))
+    val newInterned = ConfigFactory.intern(hosts(Set(7, 5000, 19999)))
+
+    def flattened() {
+        val before = oldVersion.entrySet.asScala.map(e => (e.getKey, e.getValue)).toMap
+        val after = newVersion.entrySet.asScala.map(e => (e.getKey, e.getValue)).toMap
+        if ((after.toSet -- before.toSet).size != 3)
+            throw new Exception("wrong diff")
+    }
+
+    def structural(oldVersion: Config, newVersion: Config)() {
+        if (ConfigDiff.between(oldVersion, newVersion).changed.size != 3)
+            throw new Exception("wrong diff")
+    }
+
+    def freshReload() {
+        // the first diff of a reload also pays for hashing the new tree
+        structural(oldVersion, hosts(Set(7, 5000, 19999)))
+    }
+
+    def parseOnly() {
+        hosts(Set(7, 5000, 19999))
+    }
+
+    println("DiffReloadedConfig: diffing entrySet() " + Util.time(flattened, 10) + "ms")
+    println("DiffReloadedConfig: ConfigDiff.between, not interned " + Util.time(structural(oldVersion, newVersion), 10) + "ms")
+    println("DiffReloadedConfig: ConfigDiff.between, interned " + Util.time(structural(oldInterned, newInterned), 10) + "ms")
+    println("DiffReloadedConfig: parse a reload " + Util.time(parseOnly, 10) + "ms, and ConfigDiff.between it " + Util.time(freshReload, 10) + "ms")
+
+    Util.loop(args, structural(oldVersion, newVersion))
+}
+
+object LoadLargeProperties extends App {
+    import java.util.Properties
+    val props = new Properties()
+    for (i <- 1 to 200000)
+        props.setProperty("app.module" + (i % 50) + ".section" + (i % 1000) + ".key" + i, "value" + i)
+
+    def load() {
+        if (ConfigFactory.parseProperties(props).isEmpty)
+            throw new Exception("empty config")
+    }
+
+    println("LoadLargeProperties: " + Util.time(load, 10) + "ms")
+    println("LoadLargeProperties: " + Util.allocated(load, 10) + " bytes allocated")
+
+    Util.loop(args, load)
+}
+
+object ParseLargePropertiesFile extends App {
+    import org.spongepowered.config.ConfigParseOptions
+    import org.spongepowered.config.ConfigSyntax
+
+    // the keys from LoadLargeProperties, as a file
+    val text = (1 to 200000).map({ i =>
+        "app.module" + (i % 50) + ".section" + (i % 1000) + ".key" + i + " = value" + i
+    }).mkString("# generated\n", "\n", "\n")
+    val options = ConfigParseOptions.defaults().setSyntax(ConfigSyntax.PROPERTIES)
+
+    def parse(options: ConfigParseOptions)() {
+        if (ConfigFactory.parseString(text, options).isEmpty)
+            throw new Exception("empty config")
+    }
+
+    val withoutLines = options.setOriginTracking(org.spongepowered.config.ConfigOriginTracking.FILE)
+    println("ParseLargePropertiesFile: " + Util.time(parse(options), 10) + "ms")
+    println("ParseLargePropertiesFile: " + Util.allocated(parse(options), 10) + " bytes allocated")
+    println("ParseLargePropertiesFile: without line origins " + Util.time(parse(withoutLines), 10) + "ms, "
+        + Util.allocated(parse(withoutLines), 10) + " bytes allocated")
+
+    Util.loop(args, parse(options))
+}
+
+object RefreshSystemProperties extends App {
+    // a few thousand properties, one of which a library keeps changing
+    for (i <- 1 to 5000)
+        System.setProperty("lib" + (i % 100) + ".setting" + i, "value" + i)
+    ConfigFactory.invalidateCaches()
+    ConfigFactory.load()
+    var n = 0
+
+    def reload() {
+        n += 1
+        System.setProperty("lib7.counter", n.toString)
+        ConfigFactory.invalidateCaches()
+        if (ConfigFactory.systemProperties().getInt("lib7.counter") != n)
+            throw new Exception("not reloaded")
+    }
+
+    def refresh() {
+        n += 1
+        System.setProperty("lib7.counter", n.toString)
+        ConfigFactory.refreshSystemProperties()
+        if (ConfigFactory.systemProperties().getInt("lib7.counter") != n)
+            throw new Exception("not refreshed")
+    }
+
+    def unchangedReload() {
+        ConfigFactory.invalidateCaches()
+        ConfigFactory.load()
+    }
+
+    def unchangedRefresh() {
+        ConfigFactory.refreshSystemProperties()
+        ConfigFactory.load()
+    }
+
+    // a class loader with a reference.conf of a few libraries' worth
+    val dir = java.nio.file.Files.createTempDirectory("refresh-bench").toFile
+    dir.deleteOnExit()
+    val reference = new java.io.File(dir, "reference.conf")
+    reference.deleteOnExit()
+    java.nio.file.Files.write(reference.toPath, (1 to 5000).map({ i =>
+        "lib" + (i % 50) + ".setting" + i + " { enabled : true, timeout : 10s, name : \"setting " + i + "\" }"
+    }).mkString("\n").getBytes("UTF-8"))
+    val loader = new java.net.URLClassLoader(Array(dir.toURI.toURL), null)
+
+    def changedRefresh() {
+        refresh()
+        if (ConfigFactory.load(loader).getInt("lib7.counter") != n)
+            throw new Exception("load() not rebuilt")
+    }
+
+    println("RefreshSystemProperties: full reload " + Util.time(reload, 100) + "ms, "
+        + Util.allocated(reload, 100) + " bytes allocated")
+    println("RefreshSystemProperties: refresh " + Util.time(refresh, 100) + "ms, "
+        + Util.allocated(refresh, 100) + " bytes allocated")
+    println("RefreshSystemProperties: nothing changed, reload and load() " + Util.time(unchangedReload, 100) + "ms")
+    println("RefreshSystemProperties: nothing changed, refresh and load() " + Util.time(unchangedRefresh, 100) + "ms")
+    println("RefreshSystemProperties: one property changed, refresh and load() " + Util.time(changedRefresh, 100) + "ms")
+
+    Util.loop(args, refresh)
+}
+
+object RenderToWriter extends App {
+    import org.spongepowered.config.ConfigRenderOptions
+
+    // about 20MB of HOCON rendered
+    val conf = ConfigFactory.parseString((1 to 100000).map({ i =>
+        "host" + i + " { name : \"host" + i + ".example.com\", port : " + (8000 + i % 100) + ", weight : 0.5, enabled : true, tags : [a, b, c] }"
+    }).mkString("\n"))
+    val options = ConfigRenderOptions.defaults()
+    val nowhere = new java.io.Writer() {
+        override def write(chars: Array[Char], offset: Int, length: Int) = {}
+        override def flush() = {}
+        override def close() = {}
+    }
+
+    def toSingleString() {
+        nowhere.write(conf.root.render(options))
+    }
+
+    def toWriter() {
+        conf.root.render(nowhere, options)
+    }
+
+    println("RenderToWriter: " + conf.root.render(options).length + " chars")
+    println("RenderToWriter: render() " + Util.time(toSingleString, 5) + "ms, " + Util.allocated(toSingleString, 5) + " bytes allocated")
+    println("RenderToWriter: render(Writer) " + Util.time(toWriter, 5) + "ms, " + Util.allocated(toWriter, 5) + " bytes allocated")
+
+    Util.loop(args, toWriter)
+}
+
+object RenderJsonBytes extends App {
+    import org.spongepowered.config.ConfigRenderOptions
+
+    // the config from RenderToWriter, resolved, as served over HTTP
+    val text = (1 to 100000).map({ i =>
+        "host" + i + " { name : \"host" + i + ".example.com\", port : " + (8000 + i % 100) + ", weight : 0.5, enabled : true, tags : [a, b, c] }"
+    }).mkString("\n")
+    val conf = ConfigFactory.parseString(text).resolve()
+    val options = ConfigRenderOptions.concise()
+    val utf8 = java.nio.charset.Charset.forName("UTF-8")
+    val nowhere = new java.io.OutputStream() {
+        override def write(b: Int) = {}
+        override def write(b: Array[Byte], offset: Int, length: Int) = {}
+    }
+    val size = conf.root.render(options).getBytes(utf8).length
+
+    def viaString() {
+        nowhere.write(conf.root.render(options).getBytes(utf8))
+    }
+
+    def viaWriter() {
+        val writer = new java.io.OutputStreamWriter(nowhere, utf8)
+        conf.root.render(writer, options)
+        writer.flush()
+    }
+
+    def direct() {
+        conf.root.renderUtf8(nowhere, options)
+    }
+
+    def report(name: String, body: () => Unit) {
+        val ms = Util.time(body, 10)
+        println("RenderJsonBytes: " + name + " " + ms + "ms, " + (size / 1000 / ms).toInt + " MB/s, "
+            + Util.allocated(body, 10) + " bytes allocated")
+    }
+
+    println("RenderJsonBytes: " + size + " bytes of JSON")
+    report("render().getBytes()", viaString)
+    report("render(Writer)", viaWriter)
+    report("renderUtf8(OutputStream)", direct)
+
+    Util.loop(args, direct)
+}
+
+object RenderMemoized extends App {
+    import org.spongepowered.config.ConfigRenderOptions
+    import org.spongepowered.config.ConfigValueFactory
+
+    // the config from RenderToWriter, re-rendered after each small change
+    val text = (1 to 100000).map({ i =>
+        "host" + i + " { name : \"host" + i + ".example.com\", port : " + (8000 + i % 100) + ", weight : 0.5, enabled : true, tags : [a, b, c] }"
+    }).mkString("\n")
+    val conf = ConfigFactory.parseString(text).resolve()
+    val options = ConfigRenderOptions.concise()
+    var version = 0
+
+    def unchanged() {
+        conf.root.render(options)
+    }
+
+    def oneKeyChanged() {
+        version += 1
+        conf.withValue("host5000.port", ConfigValueFactory.fromAnyRef(version)).root.render(options)
+    }
+
+    val start = System.nanoTime()
+    unchanged()
+    println("RenderMemoized: first render " + (System.nanoTime() - start) / 1000000.0 + "ms")
+    println("RenderMemoized: render again " + Util.time(unchanged, 5) + "ms, " + Util.allocated(unchanged, 5) + " bytes allocated")
+    println("RenderMemoized: render after withValue " + Util.time(oneKeyChanged, 5) + "ms, " + Util.allocated(oneKeyChanged, 5) + " bytes allocated")
+
+    // first renders once the JIT is warm, each of a config nothing rendered yet
+    val fresh = (1 to 3).map(_ => ConfigFactory.parseString(text).resolve())
+    var firstRenders = 0L
+    for (c <- fresh) {
+        val before = System.nanoTime()
+        c.root.render(options)
+        firstRenders += System.nanoTime() - before
+    }
+    println("RenderMemoized: first render, warm JIT " + firstRenders / fresh.size / 1000000.0 + "ms")
+
+    Util.loop(args, oneKeyChanged)
+}
@@ -378,6 +378,46 @@ class ConfParserTest extends TestUtils {
         Parseable.newReader(new StringReader("{}"), options).toString
     }
 
+    @Test
+    def originTrackingLevels() {
+        def parse(tracking: ConfigOriginTracking) =
+            ConfigFactory.parseFile(resourceFile("test03-included.conf"),
+                ConfigParseOptions.defaults().setOriginTracking(tracking))
+
+        val full = parse(ConfigOriginTracking.FULL).getValue("foo").origin
+        assertEquals(3, full.lineNumber)
+
+        val file = parse(ConfigOriginTracking.FILE).getValue("foo").origin
+        assertEquals(-1, file.lineNumber)
+        assertTrue(file.comments.isEmpty)
+        assertEquals(full.filename, file.filename)
+        assertEquals(file.description, parse(ConfigOriginTracking.FILE).root.origin.description)
+
+        val none = parse(ConfigOriginTracking.NONE).getValue("foo").origin
+        assertEquals(-1, none.lineNumber)
+        assertTrue(none.comments.isEmpty)
+        assertNull(none.filename)
+        assertEquals(file.description, none.description)
+
+        def commented(tracking: ConfigOriginTracking) =
+            ConfigFactory.parseString("# hello\nfoo = 1 // world",
+                ConfigParseOptions.defaults().setOriginTracking(tracking)).getValue("foo")
+        assertEquals(Seq(" hello", " world"), commented(ConfigOriginTracking.FULL).origin.comments.asScala.toSeq)
+        assertTrue(commented(ConfigOriginTracking.FILE).origin.comments.isEmpty)
+        assertEquals(1, commented(ConfigOriginTracking.NONE).unwrapped)
+
+        // the values are the same whatever we track
+        assertEquals(parse(ConfigOriginTracking.FULL), parse(ConfigOriginTracking.NONE))
+
+        // errors name the input but not the line
+        val e = intercept[ConfigException.Parse] {
+            ConfigFactory.parseString("a = 1\nb = ]", ConfigParseOptions.defaults()
+                .setOriginDescription("input").setOriginTracking(ConfigOriginTracking.FILE))
+        }
+        assertTrue(e.getMessage.startsWith("input: "))
+        assertFalse(e.getMessage.startsWith("input: 2"))
+    }
+
     private def assertComments(comments: Seq[String], conf: Config) {
         assertEquals(comments, conf.root().origin().comments().asScala.toSeq)
     }
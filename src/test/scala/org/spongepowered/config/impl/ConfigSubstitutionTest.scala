@@ -23,6 +23,8 @@ import org.junit._
 import org.spongepowered.config.ConfigException
 import org.spongepowered.config.ConfigResolveOptions
 import org.spongepowered.config.ConfigFactory
+import org.spongepowered.config.ConfigEnvVariableMapping
+import scala.collection.JavaConverters._
 
 class ConfigSubstitutionTest extends TestUtils {
 
@@ -821,6 +823,62 @@ class ConfigSubstitutionTest extends TestUtils {
         }
     }
 
+    @Test
+    def fallbackToEnvWithMapping() {
+        val obj = parseObject("""{ a : ${?home}, b : ${?java.home}, c : ${?pwd}, d : ${?PWD} }""")
+        val options = ConfigResolveOptions.defaults().setEnvVariableMapping(ConfigEnvVariableMapping.UNDERSCORES_TO_DOTS)
+        val resolved = ResolveContext.resolve(obj, obj, options).asInstanceOf[AbstractConfigObject].toConfig
+
+        var existed = 0
+        for ((k, name) <- Seq("a" -> "HOME", "b" -> "JAVA_HOME", "c" -> "PWD", "d" -> "PWD")) {
+            val e = System.getenv(name)
+            if (e != null) {
+                existed += 1
+                assertEquals(e, resolved.getString(k))
+            } else {
+                assertFalse(resolved.hasPath(k))
+            }
+        }
+        if (existed == 0) {
+            throw new Exception("None of the env vars we tried to use for testing were set")
+        }
+
+        // without the mapping, only exact names are found
+        val unmapped = resolve(obj)
+        assertFalse(unmapped.hasPath("b"))
+        assertFalse(unmapped.hasPath("c"))
+    }
+
+    @Test
+    def underscoresToDotsMapping() {
+        val mapping = ConfigEnvVariableMapping.UNDERSCORES_TO_DOTS
+        assertEquals("foo.bar", mapping.pathExpression("FOO_BAR"))
+        assertEquals("foo", mapping.pathExpression("FOO"))
+        assertNull(mapping.pathExpression("FOO__BAR"))
+        assertNull(mapping.pathExpression("_FOO"))
+        assertNull(mapping.pathExpression("FOO_"))
+    }
+
+    @Test
+    def profileSubstitutions() {
+        val profiler = ConfigFactory.newResolveProfiler()
+        val obj = parseObject("""{ a : 1, b : ${a}, c : ${b}, d : ${b} }""")
+        val resolved = obj.toConfig.resolve(ConfigResolveOptions.defaults().setProfiler(profiler))
+        assertEquals(1, resolved.getInt("d"))
+
+        val entries = profiler.mostExpensive(10)
+        val byExpr = entries.asScala.map(e => e.expression -> e).toMap
+        assertEquals(Set("${a}", "${b}"), byExpr.keySet)
+        assertEquals(2, byExpr("${b}").lookups)
+        assertTrue(byExpr("${b}").origins.size >= 1)
+        assertTrue(byExpr("${a}").totalNanos >= byExpr("${a}").selfNanos)
+        assertTrue(profiler.report(1).contains("$"))
+        assertEquals(1, profiler.mostExpensive(1).size)
+
+        profiler.reset()
+        assertTrue(profiler.mostExpensive(10).isEmpty)
+    }
+
     @Test
     def throwWhenEnvNotFound() {
         val obj = parseObject("""{ a : ${NOT_HERE} }""")
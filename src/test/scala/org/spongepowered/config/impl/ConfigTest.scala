@@ -24,6 +24,7 @@ import org.spongepowered.config.ConfigValue
 import org.spongepowered.config.Config
 import org.spongepowered.config.ConfigObject
 import org.spongepowered.config.ConfigException
+import org.spongepowered.config.ConfigValueType
 import java.util.concurrent.TimeUnit
 import scala.collection.JavaConverters._
 import org.spongepowered.config.ConfigResolveOptions
@@ -92,7 +93,9 @@ class ConfigTest extends TestUtils {
             }
         }
 
-        val trees = makeTrees(allObjects).toSeq
+        // mergeAll has to agree with all the ways of folding
+        val trees = makeTrees(allObjects).toSeq ++
+            (if (allObjects.isEmpty) Seq() else Seq(ConfigFactory.mergeAll(allObjects.asJava).root.asInstanceOf[AbstractConfigObject]))
         for (tree <- trees) {
             // if this fails, we were not associative.
             if (!trees(0).equals(tree))
@@ -107,6 +110,191 @@ class ConfigTest extends TestUtils {
         }
     }
 
+    @Test
+    def mergeAllMatchesWithFallback() {
+        val sources = Seq(
+            parseConfig("a : { x : 1 }, b : ${c}"),
+            parseConfig("a : { y : 2 }, c : { z : 3 }"),
+            parseConfig("a : ${c}, b : { w : 4 }"),
+            parseConfig("a : { y : 5, v : 6 }, c : 7"),
+            parseConfig("a : 8, d : [1, 2]"),
+            parseConfig("a : { u : 9 }, d : { e : 10 }"))
+        for (n <- 1 to sources.length) {
+            val some = sources.take(n)
+            val folded = some.reduceLeft(_ withFallback _)
+            val merged = ConfigFactory.mergeAll(some.asJava)
+            assertEquals(folded.root, merged.root)
+            assertEquals(folded.isResolved, merged.isResolved)
+            if (n > 1) // ${c} is only set from the second one on
+                assertEquals(folded.resolve(), merged.resolve())
+        }
+
+        // ConfigValue sources work too
+        val values = Seq(intValue(1), parseObject("{ a : 1 }"))
+        assertEquals(SimpleConfigObject.empty().withFallback(intValue(1)).withFallback(parseObject("{ a : 1 }")),
+            ConfigFactory.mergeAll(values.asJava).root)
+
+        assertTrue(ConfigFactory.mergeAll(Seq[Config]().asJava).isEmpty)
+    }
+
+    @Test
+    def mergeAllReusesUnchangedObject() {
+        val first = parseConfig("a : { x : 1 }, b : 2")
+        val merged = ConfigFactory.mergeAll(Seq(first, parseConfig("b : 3"), parseConfig("a.x : 4")).asJava)
+        assertSame(first.root, merged.root)
+    }
+
+    @Test
+    def delayedMergeCollapsesResolvedObjects() {
+        val layers = Seq(parseConfig("a : ${b}, b : { z : 0 }")) ++
+            (1 to 10).map({ i => parseConfig("a : { x" + i + " : " + i + " }") }) ++
+            Seq(parseConfig("a : ${c}, c : { w : 1 }"), parseConfig("a : { y : 2 }"), parseConfig("a : { y : 3, v : 4 }"))
+        val merged = layers.reduceLeft(_ withFallback _)
+        val stack = merged.root.asInstanceOf[SimpleConfigObject].get("a").asInstanceOf[Unmergeable].unmergedValues
+        // ${b}, x1 to x10, ${c}, y and v
+        assertEquals(4, stack.size)
+
+        val resolved = merged.resolve()
+        assertEquals(0, resolved.getInt("a.z"))
+        assertEquals(10, resolved.getInt("a.x10"))
+        assertEquals(2, resolved.getInt("a.y"))
+        assertEquals(4, resolved.getInt("a.v"))
+        assertEquals(1, resolved.getInt("a.w"))
+    }
+
+    @Test
+    def internSharesIdenticalSubtrees() {
+        def tenant(name: String) = parseConfig("name = " + name + ", limits { cpu = 2, mem = 1.0, hosts = [a, b] }, x = ${name}")
+        val a = ConfigFactory.intern(tenant("a"))
+        val b = ConfigFactory.intern(tenant("b"))
+        assertEquals(tenant("a"), a)
+        assertSame(a.getValue("limits"), b.getValue("limits"))
+        assertSame(a.root.keySet.asScala.find(_ == "limits").get, b.root.keySet.asScala.find(_ == "limits").get)
+        assertNotSame(a.getValue("name"), b.getValue("name"))
+        // unresolved values are left alone
+        assertFalse(a.isResolved)
+        assertEquals("a", a.resolve().getString("x"))
+
+        // interning again is a no-op
+        assertSame(a, ConfigFactory.intern(a))
+
+        // values with different origins or spellings stay apart
+        val other = ConfigFactory.intern(ConfigFactory.parseString("limits { cpu = 2, mem = 1.0, hosts = [a, b] }"))
+        assertEquals(a.getValue("limits"), other.getValue("limits"))
+        assertNotSame(a.getValue("limits"), other.getValue("limits"))
+        val respelled = ConfigFactory.intern(parseConfig("limits { cpu = 2, mem = 1.00, hosts = [a, b] }"))
+        assertNotSame(a.getValue("limits"), respelled.getValue("limits"))
+        assertEquals("1.00", respelled.getString("limits.mem"))
+    }
+
+    @Test
+    def overlayMatchesWithFallback() {
+        val base = parseConfig("a { b { c : 1, d : [1, 2] }, e : x }, f : 3, g : { h : 4 }, n : 5").resolve()
+        val overrides = parseConfig("a { b { c : 10 }, i : y }, f : { j : 6 }, g : null, k : 7").resolve()
+        val overlay = ConfigFactory.overlay(overrides, base)
+        val expected = overrides.withFallback(base)
+
+        assertTrue(overlay.isResolved)
+        assertEquals(10, overlay.getInt("a.b.c"))
+        assertEquals(Seq(1, 2), overlay.getIntList("a.b.d").asScala)
+        assertEquals("x", overlay.getString("a.e"))
+        assertEquals("y", overlay.getString("a.i"))
+        assertEquals(6, overlay.getInt("f.j"))
+        assertEquals(ConfigValueType.NULL, overlay.root.get("g").valueType)
+        assertFalse(overlay.hasPath("g.h"))
+        assertEquals(expected.getConfig("a"), overlay.getConfig("a"))
+        assertEquals(expected.root.keySet, overlay.root.keySet)
+        assertEquals(expected, overlay)
+        assertEquals(overlay, expected)
+        assertEquals(expected.hashCode, overlay.hashCode)
+        assertEquals(expected.root.render, overlay.root.render)
+        assertEquals(expected.entrySet, overlay.entrySet)
+        assertEquals(expected.root.size, overlay.root.size)
+        assertEquals(expected.root.keySet.size, overlay.root.keySet.size)
+        assertEquals(expected.root.values.asScala.toSet, overlay.root.values.asScala.toSet)
+        assertEquals(expected.root.size, overlay.root.values.size)
+        assertTrue(overlay.root.containsValue(expected.root.get("a")))
+        assertEquals(expected.root.unwrapped, overlay.root.unwrapped)
+        assertEquals(expected.root.entrySet, overlay.root.entrySet)
+        // children in both halves are overlaid once, not on every lookup
+        assertSame(overlay.root.get("a"), overlay.root.get("a"))
+        assertSame(overlay.getConfig("a").root.get("b"), overlay.getConfig("a").root.get("b"))
+        assertEquals(parseConfig("z : 1").withFallback(expected), parseConfig("z : 1").withFallback(overlay))
+        assertEquals(overlay.withFallback(parseConfig("z : 1")), expected.withFallback(parseConfig("z : 1")))
+        assertSame(overlay, overlay.resolve())
+
+        intercept[ConfigException.NotResolved] {
+            ConfigFactory.overlay(parseConfig("a : ${f}"), base)
+        }
+    }
+
+    @Test
+    def numericListsAreCompact() {
+        val conf = parseConfig("ints : [1, 2, 3, 4, 5, 6, 7, 8, 9, 10], longs : [" + (1 to 8).map(_ + 10000000000L).mkString(", ") + "]," +
+            " doubles : [0.5, 1.5, 2.5, 3.5, 4.5, 5.5, 6.5, 7.50], mixed : [1, 2, 3, 4, 5, 6, 7, 8.5]," +
+            " lines : [\n1\n2\n3\n4\n5\n6\n7\n8\n], short : [1, 2]")
+        def numbers(path: String) = conf.getList(path).asInstanceOf[SimpleConfigList].numbers
+
+        assertNotNull(numbers("ints"))
+        assertNotNull(numbers("longs"))
+        assertNotNull(numbers("doubles"))
+        assertNotNull(numbers("lines"))
+        assertNull(numbers("mixed"))
+        assertNull(numbers("short"))
+
+        assertEquals((1 to 10).toSeq, conf.getIntArray("ints").toSeq)
+        assertEquals((1 to 10).map(_.toLong), conf.getLongArray("ints").toSeq)
+        assertEquals((1 to 8).map(_ + 10000000000L), conf.getLongArray("longs").toSeq)
+        assertEquals(Seq(0.5, 1.5, 2.5, 3.5, 4.5, 5.5, 6.5, 7.5), conf.getDoubleArray("doubles").toSeq)
+        assertEquals(conf.getIntList("mixed").asScala.map(_.toInt), conf.getIntArray("mixed").toSeq)
+        assertEquals(Seq(1.0, 2.0), conf.getDoubleArray("short").toSeq)
+        intercept[ConfigException.WrongType] {
+            conf.getIntArray("longs")
+        }
+
+        // compact lists look like any other list
+        assertEquals(conf.getIntList("ints"), conf.getList("ints").unwrapped)
+        assertEquals(6, conf.getList("lines").get(4).origin.lineNumber)
+        assertEquals("7.50", conf.getList("doubles").get(7).asInstanceOf[AbstractConfigValue].transformToString)
+        assertEquals(parseConfig("a : [1, 2, 3, 4, 5, 6, 7, 8, 9, 10]").getList("a"), conf.getList("ints"))
+        assertEquals(conf.getList("ints").hashCode, parseConfig("a : [1, 2, 3, 4, 5, 6, 7, 8, 9, 10]").getList("a").hashCode)
+    }
+
+    @Test
+    def typedReadsAreMemoized() {
+        val conf = parseConfig("a : \"10\", b : 10s, c : 10K, d : yes, e : 5")
+        def value(path: String) = conf.root.get(path).asInstanceOf[AbstractConfigValue]
+
+        assertSame(DefaultTransformer.transform(value("a"), ConfigValueType.NUMBER),
+            DefaultTransformer.transform(value("a"), ConfigValueType.NUMBER))
+        assertSame(DefaultTransformer.transform(value("d"), ConfigValueType.BOOLEAN),
+            DefaultTransformer.transform(value("d"), ConfigValueType.BOOLEAN))
+        assertSame(DefaultTransformer.transform(value("e"), ConfigValueType.STRING),
+            DefaultTransformer.transform(value("e"), ConfigValueType.STRING))
+
+        for (i <- 1 to 2) {
+            assertEquals(10, conf.getInt("a"))
+            assertEquals(10L, conf.getLong("a"))
+            assertEquals(10000L, conf.getDuration("b", TimeUnit.MILLISECONDS))
+            assertEquals(10, conf.getDuration("b", TimeUnit.SECONDS))
+            assertEquals(10240L, conf.getBytes("c"))
+            assertEquals(10L, conf.getBytes("a"))
+            assertEquals(5L, conf.getBytes("e"))
+            assertEquals(5L, conf.getDuration("e", TimeUnit.MILLISECONDS))
+            assertTrue(conf.getBoolean("d"))
+            intercept[ConfigException.WrongType] {
+                conf.getInt("b")
+            }
+            intercept[ConfigException.BadValue] {
+                conf.getBytes("d")
+            }
+        }
+        // one string read as both a duration and a size
+        assertEquals(10L, conf.getDuration("a", TimeUnit.MILLISECONDS))
+        assertEquals(10L, conf.getBytes("a"))
+        assertEquals(10L, conf.getDuration("a", TimeUnit.MILLISECONDS))
+    }
+
     @Test
     def mergeTrivial() {
         val obj1 = parseObject("""{ "a" : 1 }""")
@@ -1111,6 +1299,162 @@ class ConfigTest extends TestUtils {
         }
     }
 
+    @Test
+    def renderToAppendable() {
+        val conf = ConfigFactory.parseString((1 to 2000).map({ i =>
+            "k" + i + " { s : \"value " + i + "\", l : [1, 2, {x : y}] }"
+        }).mkString("\n") + "\nm : { a : 1 } { b : ${k1.s} }")
+        for (options <- Seq(ConfigRenderOptions.defaults(), ConfigRenderOptions.concise(),
+            ConfigRenderOptions.concise().setJson(false).setComments(true))) {
+            val expected = conf.root.render(options)
+            // a Writer, which gets chunks as char arrays, and another Appendable
+            val writer = new java.io.StringWriter()
+            conf.root.render(writer, options)
+            assertEquals(expected, writer.toString)
+            val builder = new java.lang.StringBuilder()
+            conf.resolve().getObject("k5").render(builder, options)
+            assertEquals(conf.resolve().getObject("k5").render(options), builder.toString)
+        }
+
+        val failing = new java.io.Writer() {
+            override def write(chars: Array[Char], offset: Int, length: Int) = throw new java.io.IOException("disk full")
+            override def flush() = {}
+            override def close() = {}
+        }
+        val e = intercept[java.io.IOException] {
+            conf.root.render(failing, ConfigRenderOptions.defaults())
+        }
+        assertEquals("disk full", e.getMessage)
+    }
+
+    @Test
+    def renderReusesUnchangedSubtrees() {
+        val conf = ConfigFactory.parseString((1 to 500).map({ i =>
+            "k" + i + " { s : \"value " + i + "\", l : [1, 2, { x : y, z : " + i + " }], o { a : " + i + ", b : [true, false] } }"
+        }).mkString("\n")).resolve()
+        for (options <- Seq(ConfigRenderOptions.defaults(), ConfigRenderOptions.concise(),
+            ConfigRenderOptions.concise().setJson(false), ConfigRenderOptions.defaults().setOriginComments(false))) {
+            val first = conf.root.render(options)
+            assertEquals(first, conf.root.render(options))
+            // a subtree memoized inside the root renders differently alone
+            val k7 = conf.getObject("k7")
+            val k7Fresh = ConfigFactory.parseString(k7.render(ConfigRenderOptions.concise())).root
+            assertEquals(k7Fresh.render(options.setOriginComments(false)), k7.render(options.setOriginComments(false)))
+            // one key changed, everything else shared with conf
+            val changed = conf.withValue("k250.o.a", ConfigValueFactory.fromAnyRef("changed"))
+            val fresh = ConfigFactory.parseString(changed.root.render(ConfigRenderOptions.concise())).resolve()
+            assertEquals(fresh.root.render(options.setOriginComments(false)),
+                changed.root.render(options.setOriginComments(false)))
+            assertEquals(first, conf.root.render(options))
+            val writer = new java.io.StringWriter()
+            changed.root.render(writer, options)
+            assertEquals(changed.root.render(options), writer.toString)
+        }
+    }
+
+    @Test
+    def renderMemoizesOutermostFragmentsOnly() {
+        val conf = ConfigFactory.parseString("""
+            a { b { c { d : "a string long enough that the fragment around it is worth keeping" } } }
+            x { y : [1, 2, "another string long enough that the list is worth keeping"] }""")
+        def memo(value: ConfigValue) = value.asInstanceOf[RenderMemo.Owner].renderMemo()
+        def memoAt(path: String) = memo(conf.getValue(path))
+
+        // toString() doesn't memoize anything
+        conf.root.toString
+        assertNull(memo(conf.root))
+
+        val concise = conf.root.render(ConfigRenderOptions.concise())
+        assertNotNull(memo(conf.root))
+        // only the outermost fragment keeps a copy of the text
+        assertNull(memoAt("a"))
+        assertNull(memoAt("a.b"))
+        assertNull(memoAt("a.b.c"))
+        assertNull(memoAt("x"))
+        assertNull(memoAt("x.y"))
+        // but a subtree rendered on its own memoizes its own text
+        conf.getObject("a").render(ConfigRenderOptions.concise())
+        assertNotNull(memoAt("a"))
+        assertNull(memoAt("a.b"))
+
+        // two kinds of rendering don't push each other out
+        val formatted = conf.root.render(ConfigRenderOptions.defaults().setOriginComments(false))
+        val kept = memo(conf.root)
+        assertEquals(concise, conf.root.render(ConfigRenderOptions.concise()))
+        assertEquals(formatted, conf.root.render(ConfigRenderOptions.defaults().setOriginComments(false)))
+        assertTrue(kept eq memo(conf.root))
+    }
+
+    @Test
+    def renderMemoStaysWithinItsBudget() {
+        def hosts(name: String) = ConfigFactory.parseString((1 to 60000).map({ i =>
+            "k" + i + " { name : \"" + name + ", a name long enough to memoize, key " + i + "\", port : " + i + ", tags : [a, b, c] }"
+        }).mkString("\n")).resolve()
+        def memo(conf: Config, path: String) = conf.getValue(path).asInstanceOf[RenderMemo.Owner].renderMemo()
+        val options = ConfigRenderOptions.concise()
+
+        val conf = hosts("first")
+        val rendered = conf.root.render(options)
+        assertTrue(rendered.length > RenderMemo.MAX_CHARS)
+        assertTrue(RenderMemo.keptChars() <= RenderMemo.MAX_CHARS)
+        // a rendering bigger than the budget keeps its start rather than
+        // evicting it for its end, so rendering it again still gains
+        assertNotNull(memo(conf, "k1").text())
+        assertNull(memo(conf, "k60000"))
+        assertEquals(rendered, conf.root.render(options))
+        assertNotNull(memo(conf, "k1").text())
+
+        // memos that aren't used any more give way to new ones
+        val other = hosts("other")
+        for (i <- 1 to 4)
+            other.root.render(options)
+        assertTrue(RenderMemo.keptChars() <= RenderMemo.MAX_CHARS)
+        assertNull(memo(conf, "k1").text())
+        assertNotNull(memo(other, "k1").text())
+    }
+
+    @Test
+    def renderUtf8Bytes() {
+        val odd = "caf\u00e9 \ud83d\ude00 \ud83d lone \u0001 \u0085 \"q\" \\ \t\n"
+        val conf = ConfigValueFactory.fromMap(Map[String, AnyRef](
+            "s" -> odd, "key with \u00e9" -> "x", ("k" * 2000) -> "long key",
+            "long" -> ("\u00e9" * 10000), "n" -> Int.box(-42), "min" -> Long.box(Long.MinValue),
+            "d" -> Double.box(0.1), "b" -> Boolean.box(true), "nil" -> null,
+            "ints" -> (1 to 20).map(Int.box).asJava, "doubles" -> (1 to 20).map(i => Double.box(i / 4.0)).asJava,
+            "objs" -> (1 to 500).map(i => Map("a" -> i, "b" -> "v").asJava).asJava,
+            "empty" -> Map().asJava, "emptyList" -> Seq().asJava).asJava).toConfig
+
+        for (options <- Seq(ConfigRenderOptions.concise(), ConfigRenderOptions.concise().setFormatted(true),
+            ConfigRenderOptions.defaults(), ConfigRenderOptions.concise().setJson(false));
+            value <- Seq(conf.root, conf.root.get("objs"), conf.root.get("s"))) {
+            val expected = value.render(options).getBytes("UTF-8")
+            val stream = new java.io.ByteArrayOutputStream()
+            value.renderUtf8(stream, options)
+            assertArrayEquals("options=" + options, expected, stream.toByteArray)
+            val buffer = java.nio.ByteBuffer.allocate(expected.length + 10)
+            value.renderUtf8(buffer, options)
+            assertEquals(expected.length, buffer.position())
+            assertArrayEquals(expected, java.util.Arrays.copyOf(buffer.array, expected.length))
+        }
+
+        intercept[java.nio.BufferOverflowException] {
+            conf.root.renderUtf8(java.nio.ByteBuffer.allocate(100), ConfigRenderOptions.concise())
+        }
+    }
+
+    @Test
+    def renderToPrintStream() {
+        val conf = ConfigFactory.parseString("a : { b : caf\u00e9, c : [1, 2] }")
+        val options = ConfigRenderOptions.concise()
+        val bytes = new java.io.ByteArrayOutputStream()
+        val printStream = new java.io.PrintStream(bytes, false, "UTF-8")
+        // a PrintStream is an OutputStream too, but this is unambiguously
+        // render(Appendable, ...)
+        conf.root.render(printStream, options)
+        printStream.flush()
+        assertEquals(conf.root.render(options), bytes.toString("UTF-8"))
+    }
+
     @Test
     def serializeRoundTrip() {
         for (i <- 1 to 10) {
@@ -1191,4 +1535,84 @@ class ConfigTest extends TestUtils {
         val resolved = unresolved.resolveWith(source)
         assertEquals(43, resolved.getInt("foo"))
     }
+
+    @Test
+    def resolveWithIndexedSource(): Unit = {
+        val unresolved = ConfigFactory.parseString("foo = ${a}, bar = ${b.c}, baz = ${b}, a = 42, opt = ${?missing}")
+        val source = ConfigFactory.parseString("a = 43, b { c = 44, d = ${a} }").resolve().asResolveSource()
+        // the same source can be used more than once
+        for (i <- 1 to 2) {
+            val resolved = unresolved.resolveWith(source)
+            assertEquals(43, resolved.getInt("foo"))
+            assertEquals(44, resolved.getInt("bar"))
+            assertEquals(43, resolved.getInt("baz.d"))
+            assertFalse(resolved.hasPath("opt"))
+            assertEquals(unresolved.resolveWith(source.toConfig()), resolved)
+        }
+
+        intercept[ConfigException.UnresolvedSubstitution] {
+            ConfigFactory.parseString("foo = ${b.c.d}").resolveWith(source)
+        }
+        intercept[ConfigException.NotResolved] {
+            unresolved.asResolveSource()
+        }
+    }
+
+    @Test
+    def resolveAllMatchesResolvingEachOverride(): Unit = {
+        import scala.collection.JavaConverters._
+
+        val base = ConfigFactory.parseString("""
+            host = localhost
+            port = 80
+            url = "http://"${host}":"${port}
+            urls = [ ${url}, ${url}"/x" ]
+            name = base
+            greeting = "hello "${name}
+            db { user = ${?DB_USER_NOT_SET}, pool = ${pool} }
+            pool { size = 10 }
+            path = "/bin"
+            path = ${path}":/usr/bin"
+            opt = 1
+            opt = ${?missing}
+            """)
+        val overrides = Seq(
+            "",
+            "host = example.com",
+            "port = ${other}, other = 8080",
+            "name = tenant, unrelated = 1",
+            "pool.max = 20",
+            "path = ${path}\":/opt/bin\"",
+            "missing = 42",
+            "url = fixed, host = ignored",
+            "db.user = bob") map { s => ConfigFactory.parseString(s) }
+
+        val batched = ConfigFactory.resolveAll(base, overrides.asJava).asScala
+        assertEquals(overrides.size, batched.size)
+        for ((o, resolved) <- overrides zip batched) {
+            assertEquals(o.withFallback(base).resolve(), resolved)
+        }
+        assertEquals("http://example.com:80", batched(1).getString("url"))
+        assertEquals("http://localhost:8080/x", batched(2).getList("urls").get(1).unwrapped)
+        assertEquals("hello tenant", batched(3).getString("greeting"))
+        assertEquals(20, batched(4).getInt("db.pool.max"))
+        assertEquals("/bin:/usr/bin:/opt/bin", batched(5).getString("path"))
+        assertEquals(42, batched(6).getInt("opt"))
+        assertEquals("fixed", batched(7).getList("urls").get(0).unwrapped)
+    }
+
+    @Test
+    def resolveAllWithUnresolvableBase(): Unit = {
+        import scala.collection.JavaConverters._
+
+        // the base only resolves with the host the overrides provide
+        val base = ConfigFactory.parseString("url = \"http://\"${host}")
+        val overrides = Seq("host = a", "host = b") map { s => ConfigFactory.parseString(s) }
+        val batched = ConfigFactory.resolveAll(base, overrides.asJava).asScala
+        assertEquals(Seq("http://a", "http://b"), batched.map(_.getString("url")))
+
+        intercept[ConfigException.UnresolvedSubstitution] {
+            ConfigFactory.resolveAll(base, Seq(ConfigFactory.empty()).asJava)
+        }
+    }
 }
@@ -70,7 +70,7 @@ class ConfigValueTest extends TestUtils {
             "0000000D000B_f_a_k_e_ _o_r_i_g_i_n090000000100010400000009020000002A0002_4_20103" +
             "000000010001_x"
         val a = intValue(42)
-        val b = checkSerializable(expectedSerialization, a)
+        val b = checkSerializableOldFormat(expectedSerialization, a)
         assertEquals(42, b.unwrapped)
     }
 
@@ -94,7 +94,7 @@ class ConfigValueTest extends TestUtils {
             "_2_1_4_7_4_8_3_6_8_90103000000010001_x"
 
         val a = longValue(Integer.MAX_VALUE + 42L)
-        val b = checkSerializable(expectedSerialization, a)
+        val b = checkSerializableOldFormat(expectedSerialization, a)
         assertEquals(Integer.MAX_VALUE + 42L, b.unwrapped)
     }
 
@@ -131,7 +131,7 @@ class ConfigValueTest extends TestUtils {
             "_3_._1_40103000000010001_x"
 
         val a = doubleValue(3.14)
-        val b = checkSerializable(expectedSerialization, a)
+        val b = checkSerializableOldFormat(expectedSerialization, a)
         assertEquals(3.14, b.unwrapped)
     }
 
@@ -156,7 +156,7 @@ class ConfigValueTest extends TestUtils {
             "0000000D000B_f_a_k_e_ _o_r_i_g_i_n090000000100010400000001000103000000010001_x"
 
         val a = nullValue()
-        val b = checkSerializable(expectedSerialization, a)
+        val b = checkSerializableOldFormat(expectedSerialization, a)
         assertNull("b is null", b.unwrapped)
     }
 
@@ -168,7 +168,7 @@ class ConfigValueTest extends TestUtils {
             "0000000D000B_f_a_k_e_ _o_r_i_g_i_n09000000010001040000000201010103000000010001_x"
 
         val a = boolValue(true)
-        val b = checkSerializable(expectedSerialization, a)
+        val b = checkSerializableOldFormat(expectedSerialization, a)
         assertEquals(true, b.unwrapped)
     }
 
@@ -181,7 +181,7 @@ class ConfigValueTest extends TestUtils {
             "_k_ _b_r_o_w_n_ _f_o_x0103000000010001_x"
 
         val a = stringValue("The quick brown fox")
-        val b = checkSerializable(expectedSerialization, a)
+        val b = checkSerializableOldFormat(expectedSerialization, a)
         assertEquals("The quick brown fox", b.unwrapped)
     }
 
@@ -237,12 +237,99 @@ class ConfigValueTest extends TestUtils {
 
         val aMap = configMap("a" -> 1, "b" -> 2, "c" -> 3)
         val a = new SimpleConfigObject(fakeOrigin(), aMap)
-        val b = checkSerializable(expectedSerialization, a)
+        val b = checkSerializableOldFormat(expectedSerialization, a)
         assertEquals(1, b.toConfig.getInt("a"))
         // check that deserialized Config and ConfigObject refer to each other
         assertTrue(b.toConfig.root eq b)
     }
 
+    @Test
+    def configCompactSerializable() {
+        // written by the per-value field format before the compact one
+        val oldSerialization = "" +
+            "ACED0005_s_r00_3_o_r_g_._s_p_o_n_g_e_p_o_w_e_r_e_d_._c_o_n_f_i_g_._i_m_p_l_._S_e" +
+            "_r_i_a_l_i_z_e_d_C_o_n_f_i_g_V_a_l_u_e00000000000000010C0000_x_p_z000001_4020000" +
+            "0128050000002606000000080006_S_t_r_i_n_g0700000004000000010800000004000000010900" +
+            "000001000104000000F707000000030001_e05000000130700000004000000030800000004000000" +
+            "030104000000160300000002_T0BE400000B_1_0_0_0_0_0_0_0_0_0_0010001_a05000000010104" +
+            "000000_s07000000020001_c05000000010104000000_A0600000003050000000101040000000802" +
+            "000000010001_101050000000101040000000802000000020001_201050000000101040000000802" +
+            "000000030001_301010001_b050000000101040000000F043FF80000000000000004_1_._5_00101" +
+            "0001_d05000000230700000004000000030800000004000000030B0000000B000000010005_ _n_o" +
+            "_t_e010400000008050005_h_e_l_l_o010103000000010101_x"
+
+        val conf = ConfigFactory.parseString("a { b : 1.50, c : [1, 2, 3] }\n# note\nd : hello, e : 10000000000")
+        val b = checkSerializableOldFormat(oldSerialization, conf)
+        assertEquals(Seq(" note"), b.getValue("d").origin.comments.asScala)
+        assertEquals("1.50", b.getString("a.b"))
+        assertEquals(10000000000L, b.getLong("e"))
+
+        // keys and origins are shared rather than repeated
+        val wide = ConfigFactory.parseString((1 to 100).map({ i => "k" + i + " { enabled : true, limit : " + i + " }" }).mkString("\n"))
+        val bytes = new java.io.ByteArrayOutputStream()
+        val out = new java.io.ObjectOutputStream(bytes)
+        out.writeObject(wide)
+        out.close()
+        assertTrue("compact form is " + bytes.size + " bytes", bytes.size < 3000)
+        assertEquals(wide, checkSerializable(wide))
+
+        // strings are no longer limited to what writeUTF can hold
+        val long = ConfigFactory.parseString("s : \"" + ("x" * 70000) + "\"")
+        assertEquals(70000, checkSerializable(long).getString("s").length)
+    }
+
+    @Test
+    def configCompactSerializationIsStable() {
+        // the compact format, which must not change without a version bump
+        val expectedSerialization = "" +
+            "ACED0005_s_r00_3_o_r_g_._s_p_o_n_g_e_p_o_w_e_r_e_d_._c_o_n_f_i_g_._i_m_p_l_._S_e" +
+            "_r_i_a_l_i_z_e_d_C_o_n_f_i_g_V_a_l_u_e00000000000000010C0000_x_p_w_d0E0103070101" +
+            "06_S_t_r_i_n_g0202000000030101_a0700020101_b84003FF80000000000000104_1_._5_00101" +
+            "_c0600030200020200040200060101_d05010204040000020105_ _n_o_t_e0105_h_e_l_l_o0101" +
+            "_e03010204040000008090DFC0_J_x"
+
+        val conf = ConfigFactory.parseString("a { b : 1.50, c : [1, 2, 3] }\n# note\nd : hello, e : 10000000000")
+        val b = checkSerializable(expectedSerialization, conf)
+        assertEquals(Seq(" note"), b.getValue("d").origin.comments.asScala)
+    }
+
+    @Test
+    def byteBufferDataInputReadsLinesLikeDataInputStream() {
+        val text = "one\ntwo\r\nthree\rfour\n\n\u00e9five"
+        val bytes = text.getBytes("ISO-8859-1")
+        def lines(in: java.io.DataInput) = Iterator.continually(in.readLine()).takeWhile(_ != null).toList
+        val expected = lines(new java.io.DataInputStream(new java.io.ByteArrayInputStream(bytes)))
+        assertEquals(List("one", "two", "three", "four", "", "\u00e9five"), expected)
+        assertEquals(expected, lines(new ByteBufferDataInput(java.nio.ByteBuffer.wrap(bytes))))
+
+        // through a channel in tiny chunks, so lines and \r\n span chunks
+        val chunked = new java.io.ByteArrayOutputStream()
+        val out = new ByteBufferDataOutput(java.nio.channels.Channels.newChannel(chunked), 7)
+        out.write(bytes)
+        out.finish()
+        val in = new ByteBufferDataInput(java.nio.channels.Channels.newChannel(
+            new java.io.ByteArrayInputStream(chunked.toByteArray)), 7)
+        assertEquals(expected, lines(in))
+        in.finish()
+    }
+
+    @Test
+    def compactLengthsAreNotTrusted() {
+        // after the header, a root origin whose description claims to be
+        // Int.MaxValue bytes long; a root origin "x" and a list claiming as
+        // many elements; and an origin with no description. The first two
+        // should run out of input rather than allocate for the claimed size.
+        val maxVarInt = Seq(0xFF, 0xFF, 0xFF, 0xFF, 0x07)
+        val originX = Seq(1, 1, 'x'.toInt, 0, 0, 0, 0, 0)
+        for (tail <- Seq(Seq(1) ++ maxVarInt, originX ++ Seq(6) ++ maxVarInt, Seq(0, 0, 0, 0, 0, 0))) {
+            val bytes = (Seq(SerializedConfigValue.SerializedField.ROOT_COMPACT.ordinal, 1, 0) ++ tail).map(_.toByte).toArray
+            val in = new java.io.DataInputStream(new java.io.ByteArrayInputStream(bytes))
+            intercept[java.io.IOException] {
+                SerializedConfigValue.readCompact(in)
+            }
+        }
+    }
+
     @Test
     def configConfigSerializable() {
         val expectedSerialization = "" +
@@ -254,7 +341,7 @@ class ConfigValueTest extends TestUtils {
 
         val aMap = configMap("a" -> 1, "b" -> 2, "c" -> 3)
         val a = new SimpleConfigObject(fakeOrigin(), aMap)
-        val b = checkSerializable(expectedSerialization, a.toConfig())
+        val b = checkSerializableOldFormat(expectedSerialization, a.toConfig())
         assertEquals(1, b.getInt("a"))
         // check that deserialized Config and ConfigObject refer to each other
         assertTrue(b.root.toConfig eq b)
@@ -283,7 +370,7 @@ class ConfigValueTest extends TestUtils {
             "040000000802000000030001_3010103000000010001_x"
         val aScalaSeq = Seq(1, 2, 3) map { intValue(_): AbstractConfigValue }
         val aList = new SimpleConfigList(fakeOrigin(), aScalaSeq.asJava)
-        val bList = checkSerializable(expectedSerialization, aList)
+        val bList = checkSerializableOldFormat(expectedSerialization, aList)
         assertEquals(1, bList.get(0).unwrapped())
     }
 
@@ -610,6 +697,49 @@ class ConfigValueTest extends TestUtils {
         assertEquals("merge of a,b,c", m(o("a", false), o("b", false), o("c", false)))
     }
 
+    @Test
+    def cachedHashesKeepEqualityStructural() {
+        val text = "a { b { c = [1, 2, { d = x }] } }, e = 1"
+        val one = parseConfig(text)
+        val two = parseConfig(text)
+        val changed = parseConfig(text.replace("d = x", "d = y"))
+        // ask twice so the second time uses the cached hashes
+        for (i <- 1 to 2) {
+            assertEquals(one.hashCode, two.hashCode)
+            assertEquals(one, two)
+            assertFalse(one == changed)
+            assertFalse(one.getList("a.b.c") == changed.getList("a.b.c"))
+            assertEquals(one.getList("a.b.c"), two.getList("a.b.c"))
+        }
+    }
+
+    @Test
+    def valuesOnOneLineShareOrigin() {
+        val conf = ConfigFactory.parseString("a = 1, b = { x : 2 }\nc = [3]")
+        val a = conf.root.get("a").origin
+        assertSame(a, conf.root.get("b").origin)
+        assertSame(a, conf.getValue("b.x").origin)
+        assertEquals(1, a.lineNumber)
+        assertEquals(2, conf.root.get("c").origin.lineNumber)
+        assertSame(conf.root.get("c").origin, conf.getList("c").get(0).origin)
+    }
+
+    @Test
+    def lazyMergedOriginsNestDeeply() {
+        // each withFallback nests the previous merged origin one level deeper
+        var merged: ConfigOrigin = SimpleConfigOrigin.newSimple("a").setLineNumber(1)
+        for (i <- 2 to 50000) {
+            merged = SimpleConfigOrigin.mergeOrigins(merged, SimpleConfigOrigin.newSimple("a").setLineNumber(i))
+        }
+        assertEquals("a: 1-50000", merged.description())
+        assertEquals(1, merged.lineNumber())
+
+        val other = SimpleConfigOrigin.mergeOrigins(SimpleConfigOrigin.newSimple("a").setLineNumber(1),
+            SimpleConfigOrigin.newSimple("a").setLineNumber(50000))
+        assertEquals(other, merged)
+        assertEquals(other.hashCode, merged.hashCode)
+    }
+
     @Test
     def hasPathWorks() {
         val empty = parseConfig("{}")
@@ -21,11 +21,13 @@ package org.spongepowered.config.impl
 import org.junit.Assert._
 import org.junit._
 import java.util.{ Date, Properties }
+import java.io.StringReader
 import org.spongepowered.config.Config
 import org.spongepowered.config.ConfigParseOptions
 import org.spongepowered.config.ConfigFactory
 import org.spongepowered.config.ConfigException
 import org.spongepowered.config.ConfigResolveOptions
+import org.spongepowered.config.ConfigSyntax
 
 class PropertiesTest extends TestUtils {
     @Test
@@ -210,4 +212,54 @@ class PropertiesTest extends TestUtils {
 
         assertEquals(0, conf.root().size())
     }
+
+    @Test
+    def objectsWinInAnyOrder() {
+        // Properties with entrySet() in insertion order
+        class OrderedProperties(entries: Seq[(String, AnyRef)]) extends Properties {
+            entries.foreach({ case (k, v) => put(k, v) })
+            override def entrySet() = {
+                val set = new java.util.LinkedHashSet[java.util.Map.Entry[AnyRef, AnyRef]]()
+                entries.foreach({ case (k, v) => set.add(new java.util.AbstractMap.SimpleEntry[AnyRef, AnyRef](k, v)) })
+                set
+            }
+        }
+        val entries = Seq("x" -> "baz", "x.y" -> "bar", "x.y.z" -> "foo", "x.w" -> "w", "c.d" -> new Date())
+        val forward = ConfigFactory.parseProperties(new OrderedProperties(entries))
+        val backward = ConfigFactory.parseProperties(new OrderedProperties(entries.reverse))
+
+        assertEquals(forward.root, backward.root)
+        assertEquals("foo", forward.getString("x.y.z"))
+        assertEquals("w", forward.getString("x.w"))
+        // a parent of a skipped non-string is still an object
+        assertTrue(forward.getObject("c").isEmpty)
+    }
+
+    @Test
+    def parseMatchesPropertiesLoad() {
+        val texts = Seq(
+            "a=1\nb = 2\n  c:3\nd 4\ne\n f= \n",
+            "# comment \\\n!other\\\ng=x\\\n    y\\\n\nh=\\\\\n",
+            "i.j\\=k=v\\tw\\nx\\u0041\\q\r\nl.m=continued\\\r\n  here\rn=last\\",
+            "key\\ with\\:seps = value with spaces  \n\n\n\t\fo=\\\n\n",
+            "p=1\np=2\nq.r=a\nq=b\n")
+        for (text <- texts) {
+            val props = new Properties()
+            props.load(new StringReader(text))
+            val expected = ConfigFactory.parseProperties(props).root
+            val parsed = ConfigFactory.parseString(text, ConfigParseOptions.defaults().setSyntax(ConfigSyntax.PROPERTIES)).root
+            assertEquals("parsing " + text, expected, parsed)
+        }
+
+        val conf = ConfigFactory.parseString("# first\na=1\n\nb=2\\\n  3\r\nc.d=4\r\n",
+            ConfigParseOptions.defaults().setSyntax(ConfigSyntax.PROPERTIES))
+        assertEquals(2, conf.getValue("a").origin.lineNumber)
+        assertEquals(4, conf.getValue("b").origin.lineNumber)
+        assertEquals("23", conf.getString("b"))
+        assertEquals(6, conf.getValue("c.d").origin.lineNumber)
+
+        intercept[ConfigException.Parse] {
+            ConfigFactory.parseString("a=\\u00zz", ConfigParseOptions.defaults().setSyntax(ConfigSyntax.PROPERTIES))
+        }
+    }
 }
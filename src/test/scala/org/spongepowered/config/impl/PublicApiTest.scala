@@ -963,6 +963,77 @@ class PublicApiTest extends TestUtils {
         assertTrue("stuff gets cached repeatedly conf", conf3 eq conf4)
     }
 
+    @Test
+    def refreshSystemPropertiesPatchesChanges() {
+        ConfigFactory.invalidateCaches()
+        val conf0 = ConfigFactory.load()
+        val sys0 = ConfigFactory.systemProperties()
+
+        assertFalse(ConfigFactory.refreshSystemProperties())
+        assertTrue("unchanged refresh keeps the object", sys0 eq ConfigFactory.systemProperties())
+        assertTrue("unchanged refresh keeps caches", conf0 eq ConfigFactory.load())
+
+        try {
+            System.setProperty("refreshTest.a", "1")
+            System.setProperty("refreshTest", "objects win")
+            assertTrue(ConfigFactory.refreshSystemProperties())
+            val sys1 = ConfigFactory.systemProperties()
+            assertEquals("1", sys1.getString("refreshTest.a"))
+            assertTrue("unchanged keys are shared", sys0.getValue("java") eq sys1.getValue("java"))
+            assertTrue("changed refresh drops caches", ConfigFactory.load().hasPath("refreshTest.a"))
+
+            System.clearProperty("refreshTest.a")
+            assertTrue(ConfigFactory.refreshSystemProperties())
+            assertEquals("objects win", ConfigFactory.systemProperties().getString("refreshTest"))
+            ConfigImpl.reloadSystemPropertiesConfig()
+            val reloaded = ConfigFactory.systemProperties()
+            System.clearProperty("refreshTest")
+            assertTrue(ConfigFactory.refreshSystemProperties())
+            assertFalse(ConfigFactory.systemProperties().hasPath("refreshTest"))
+            assertEquals(sys0.root, ConfigFactory.systemProperties().root)
+            assertTrue(reloaded.hasPath("refreshTest"))
+        } finally {
+            System.clearProperty("refreshTest.a")
+            System.clearProperty("refreshTest")
+            ConfigFactory.invalidateCaches()
+        }
+    }
+
+    @Test
+    def refreshSystemPropertiesKeepsParsedLayers(): Unit = {
+        // counts lookups of the files load() parses
+        val lookups = mutable.Map[String, Int]().withDefaultValue(0)
+        val loader = new ClassLoader(this.getClass.getClassLoader) {
+            override def getResources(name: String) = {
+                lookups(name) += 1
+                super.getResources(name)
+            }
+        }
+        ConfigFactory.invalidateCaches()
+        val conf0 = ConfigFactory.load(loader)
+        ConfigFactory.defaultReference(loader)
+        val before = lookups.toMap
+        assertTrue(before("reference.conf") > 0)
+        assertTrue(before("application.conf") > 0)
+
+        try {
+            System.setProperty("refreshParsed.a", "1")
+            assertTrue(ConfigFactory.refreshSystemProperties())
+            val conf1 = ConfigFactory.load(loader)
+            assertTrue("rebuilt with the new property", conf1 ne conf0)
+            assertEquals(1, conf1.getInt("refreshParsed.a"))
+            assertEquals(1, ConfigFactory.defaultReference(loader).getInt("refreshParsed.a"))
+            assertEquals("nothing was parsed again", before, lookups.toMap)
+
+            ConfigFactory.invalidateCaches()
+            ConfigFactory.load(loader)
+            assertTrue("invalidateCaches() parses again", lookups("reference.conf") > before("reference.conf"))
+        } finally {
+            System.clearProperty("refreshParsed.a")
+            ConfigFactory.invalidateCaches()
+        }
+    }
+
     @Test
     def invalidateReferenceConfig(): Unit = {
         val orig = ConfigFactory.defaultReference()
@@ -993,4 +1064,186 @@ class PublicApiTest extends TestUtils {
             conf.getInt("b")
         }
     }
+
+    @Test
+    def codecRoundTrips(): Unit = {
+        val conf = ConfigFactory.parseString("a { b : 1.50, c : [1, 2, 3] }\n# note\nd : hello, e : ${a.c}, long : \"" + ("x" * 100000) + "\"").resolve()
+
+        val heap = ConfigCodec.encode(conf)
+        assertEquals(conf, ConfigCodec.decode(heap))
+        assertFalse(heap.hasRemaining)
+
+        // direct buffer, two configs back to back, origins kept or not
+        val direct = java.nio.ByteBuffer.allocateDirect(300000)
+        ConfigCodec.encode(conf, direct)
+        ConfigCodec.encode(conf, direct, false)
+        direct.flip()
+        val withOrigins = ConfigCodec.decode(direct)
+        val withoutOrigins = ConfigCodec.decode(direct)
+        assertFalse(direct.hasRemaining)
+        assertEquals(conf, withOrigins)
+        assertEquals(conf, withoutOrigins)
+        assertEquals(Seq(" note"), withOrigins.getValue("d").origin.comments.asScala)
+        assertEquals(conf.getValue("d").origin.lineNumber, withOrigins.getValue("d").origin.lineNumber)
+        assertEquals(conf.origin.description, withoutOrigins.getValue("d").origin.description)
+
+        // streaming through a channel leaves what follows the config alone
+        val bytes = new java.io.ByteArrayOutputStream()
+        val out = java.nio.channels.Channels.newChannel(bytes)
+        ConfigCodec.encode(conf, out)
+        ConfigCodec.encode(ConfigFactory.parseString("x : 1"), out, false)
+        bytes.write(42)
+        val in = java.nio.channels.Channels.newChannel(new java.io.ByteArrayInputStream(bytes.toByteArray))
+        assertEquals(conf, ConfigCodec.decode(in))
+        assertEquals(1, ConfigCodec.decode(in).getInt("x"))
+        val rest = java.nio.ByteBuffer.allocate(2)
+        assertEquals(1, in.read(rest))
+        assertEquals(42, rest.get(0))
+
+        // streaming doesn't leave a direct buffer per call for the GC to free
+        val directPool = java.lang.management.ManagementFactory.getPlatformMXBeans(
+            classOf[java.lang.management.BufferPoolMXBean]).asScala.find(_.getName == "direct").get
+        val directBefore = directPool.getMemoryUsed
+        for (i <- 1 to 100) {
+            val sink = new java.io.ByteArrayOutputStream()
+            ConfigCodec.encode(conf, java.nio.channels.Channels.newChannel(sink))
+            ConfigCodec.decode(java.nio.channels.Channels.newChannel(new java.io.ByteArrayInputStream(sink.toByteArray)))
+        }
+        assertTrue(directPool.getMemoryUsed - directBefore < 64 * 1024)
+
+        intercept[java.nio.BufferOverflowException] {
+            ConfigCodec.encode(conf, java.nio.ByteBuffer.allocate(100))
+        }
+        intercept[ConfigException.NotResolved] {
+            ConfigCodec.encode(ConfigFactory.parseString("a : ${b}, b : 1"))
+        }
+        val truncated = ConfigCodec.encode(conf)
+        truncated.limit(truncated.limit() / 2)
+        intercept[ConfigException.IO] {
+            ConfigCodec.decode(truncated)
+        }
+    }
+
+    @Test
+    def codecIsBigEndianWhateverTheBufferOrder(): Unit = {
+        val conf = ConfigFactory.parseString("d : 1.5, i : 123456, s : hello").resolve()
+
+        // a native-order direct buffer, as shared between processes
+        val little = java.nio.ByteBuffer.allocateDirect(1000).order(java.nio.ByteOrder.LITTLE_ENDIAN)
+        ConfigCodec.encode(conf, little)
+        assertEquals(java.nio.ByteOrder.LITTLE_ENDIAN, little.order)
+        little.flip()
+        val bytes = new Array[Byte](little.remaining)
+        little.duplicate().get(bytes)
+        val heap = ConfigCodec.encode(conf)
+        val heapBytes = new Array[Byte](heap.remaining)
+        heap.get(heapBytes)
+        assertArrayEquals(heapBytes, bytes)
+
+        // read back from a default (big-endian) buffer, and from the little one
+        val decoded = ConfigCodec.decode(java.nio.ByteBuffer.wrap(bytes))
+        assertEquals(conf, decoded)
+        assertEquals(1.5, decoded.getDouble("d"), 0.0)
+        assertEquals(conf, ConfigCodec.decode(little))
+        assertFalse(little.hasRemaining)
+    }
+
+    @Test
+    def codecRejectsCorruptInput(): Unit = {
+        val conf = ConfigFactory.parseString("a { b : 1.50, c : [1, 2, 3] }\n# note\nd : hello, e : [{ x : true }, null]").resolve()
+        val heap = ConfigCodec.encode(conf)
+        val good = new Array[Byte](heap.remaining)
+        heap.get(good)
+        val channelBytes = new java.io.ByteArrayOutputStream()
+        ConfigCodec.encode(conf, java.nio.channels.Channels.newChannel(channelBytes))
+        val goodChunked = channelBytes.toByteArray
+
+        // every byte flipped in turn either still decodes to something or
+        // fails with ConfigException.IO, never anything else
+        def flipped(bytes: Array[Byte], i: Int, mask: Int) = {
+            val copy = bytes.clone()
+            copy(i) = (copy(i) ^ mask).toByte
+            copy
+        }
+        for (i <- 0 until good.length; mask <- Seq(0xFF, 0x80, 0x01)) {
+            try {
+                ConfigCodec.decode(java.nio.ByteBuffer.wrap(flipped(good, i, mask)))
+            } catch {
+                case e: ConfigException.IO =>
+            }
+        }
+        for (i <- 0 until goodChunked.length; mask <- Seq(0xFF, 0x80, 0x01)) {
+            try {
+                ConfigCodec.decode(java.nio.channels.Channels.newChannel(
+                    new java.io.ByteArrayInputStream(flipped(goodChunked, i, mask))))
+            } catch {
+                case e: ConfigException.IO =>
+            }
+        }
+
+        // a string or chunk claiming to be huge fails without allocating it
+        val hugeString = good.clone()
+        val at = hugeString.indexOf('h'.toByte) - 1 // length of "hello"
+        assertEquals(5, hugeString(at))
+        val tooLong = new java.io.ByteArrayOutputStream()
+        tooLong.write(hugeString, 0, at)
+        tooLong.write(Array(0xFF, 0xFF, 0xFF, 0xFF, 0x07).map(_.toByte))
+        tooLong.write(hugeString, at + 1, hugeString.length - at - 1)
+        intercept[ConfigException.IO] {
+            ConfigCodec.decode(java.nio.ByteBuffer.wrap(tooLong.toByteArray))
+        }
+        val hugeChunk = goodChunked.clone()
+        hugeChunk(0) = 0x7F
+        intercept[ConfigException.IO] {
+            ConfigCodec.decode(java.nio.channels.Channels.newChannel(new java.io.ByteArrayInputStream(hugeChunk)))
+        }
+    }
+
+    @Test
+    def codecDeltaTurnsOldVersionIntoNew(): Unit = {
+        val big = (1 to 1000).map(i => "k" + i + " : " + i).mkString("\n")
+        val oldVersion = ConfigFactory.parseString(big + "\na { b : 1, c : { d : x, e : y } }, gone : true, list : [1, 2]").resolve()
+        val newVersion = ConfigFactory.parseString(big + "\na { b : 1, c : { d : x, e : z } }, added : [3], list : { now : object }").resolve()
+
+        val delta = ConfigCodec.encodeDelta(oldVersion, newVersion)
+        assertTrue("delta is small: " + delta.remaining, delta.remaining * 20 < ConfigCodec.encode(newVersion).remaining)
+        val applied = ConfigCodec.applyDelta(oldVersion, delta)
+        assertFalse(delta.hasRemaining)
+        assertEquals(newVersion, applied)
+        assertEquals("z", applied.getString("a.c.e"))
+        assertFalse(applied.hasPath("gone"))
+        assertEquals(oldVersion.getValue("k5").origin.lineNumber, applied.getValue("k5").origin.lineNumber)
+
+        // nothing changed gives back the base
+        assertSame(oldVersion, ConfigCodec.applyDelta(oldVersion, ConfigCodec.encodeDelta(oldVersion, oldVersion)))
+
+        intercept[ConfigException.Generic] {
+            ConfigCodec.applyDelta(newVersion, ConfigCodec.encodeDelta(oldVersion, newVersion))
+        }
+        intercept[ConfigException.IO] {
+            ConfigCodec.applyDelta(oldVersion, ConfigCodec.encode(oldVersion))
+        }
+    }
+
+    @Test
+    def diffReportsChangedPaths(): Unit = {
+        val oldVersion = ConfigFactory.parseString("a { b : 1, c { d : x, e : y } }, gone : true, list : [1, 2], same : { s : 1 }")
+        val newVersion = ConfigFactory.parseString("a { b : 2, c { d : x } }, added { f : 1 }, list : { now : object }, same : { s : 1 }")
+
+        val diff = ConfigDiff.between(oldVersion, newVersion)
+        assertFalse(diff.isEmpty)
+        assertEquals(Seq("added"), diff.added.keySet.asScala.toSeq)
+        assertEquals(1, diff.added.get("added").asInstanceOf[ConfigObject].toConfig.getInt("f"))
+        assertEquals(Seq("a.c.e", "gone"), diff.removed.keySet.asScala.toSeq)
+        assertEquals(Seq("a.b", "list"), diff.changed.keySet.asScala.toSeq)
+        assertEquals(intValue(1), diff.changed.get("a.b").oldValue)
+        assertEquals(intValue(2), diff.changed.get("a.b").newValue)
+
+        // equal configs, shared or not
+        assertTrue(ConfigDiff.between(oldVersion, oldVersion).isEmpty)
+        assertTrue(ConfigDiff.between(oldVersion, ConfigFactory.parseString(oldVersion.root.render)).isEmpty)
+        // keys needing quotes
+        val quoted = ConfigDiff.between(ConfigFactory.parseString("\"x.y\" : 1"), ConfigFactory.parseString("\"x.y\" : 2"))
+        assertEquals(Seq("\"x.y\""), quoted.changed.keySet.asScala.toSeq)
+    }
 }